@@ -18,11 +18,21 @@ package de.perdian.apps.imagetiger.fx;
 import java.io.File;
 import java.util.Objects;
 
+import org.apache.commons.lang3.EnumUtils;
+
 import de.perdian.apps.imagetiger.fx.model.selection.Selection;
 import de.perdian.apps.imagetiger.fx.panes.directories.DirectoryPane;
 import de.perdian.apps.imagetiger.fx.panes.selection.SelectionPane;
 import de.perdian.apps.imagetiger.fx.panes.status.StatusPane;
+import de.perdian.apps.imagetiger.fx.support.executors.ImageProcessingExecutor;
+import de.perdian.apps.imagetiger.fx.support.executors.ImageProcessingMode;
+import de.perdian.apps.imagetiger.fx.support.executors.ImageProcessingWorkload;
+import de.perdian.apps.imagetiger.fx.support.jobs.Job;
 import de.perdian.apps.imagetiger.fx.support.jobs.JobExecutor;
+import de.perdian.apps.imagetiger.fx.support.jobs.JobListener;
+import de.perdian.apps.imagetiger.model.impl.DefaultImageFileParser;
+import de.perdian.apps.imagetiger.model.impl.ImageMetadataCache;
+import de.perdian.apps.imagetiger.model.impl.RenameJournal;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.Property;
 import javafx.geometry.Insets;
@@ -33,10 +43,28 @@ class ImageTigerPane extends GridPane {
 
     ImageTigerPane(ImageTigerPreferences preferences) {
 
+        ImageMetadataCache metadataCache = new ImageMetadataCache(preferences.getStorageDirectory().resolve("metadata-cache"));
         JobExecutor jobExecutor = new JobExecutor();
-        Selection selection = new Selection(jobExecutor);
+        jobExecutor.addListener(new JobListener() {
+            @Override public void jobCompleted(Job job, boolean otherJobsActive) {
+                metadataCache.flush();
+            }
+        });
+
+        int imageProcessingThreads = preferences.createIntegerProperty("processing.threads", Runtime.getRuntime().availableProcessors()).getValue();
+        int imageProcessingQueueCapacity = preferences.createIntegerProperty("processing.queueCapacity", 1000).getValue();
+        ImageProcessingMode imageProcessingMode = preferences.createObjectProperty("processing.mode", ImageProcessingMode.PLATFORM_THREADS, value -> EnumUtils.getEnum(ImageProcessingMode.class, value, ImageProcessingMode.PLATFORM_THREADS), ImageProcessingMode::name).getValue();
+        int imageProcessingMaxOpenFiles = preferences.createIntegerProperty("processing.maxOpenFiles", 64).getValue();
+        ImageProcessingExecutor imageProcessingExecutor = new ImageProcessingExecutor(imageProcessingThreads, imageProcessingQueueCapacity, imageProcessingMode, imageProcessingMaxOpenFiles);
+
+        RenameJournal renameJournal = new RenameJournal(preferences.getStorageDirectory().resolve("rename-journal"));
+        renameJournal.recover();
+
+        boolean headerMetadataOnly = preferences.createObjectProperty("parser.headerMetadataOnly", Boolean.TRUE, Boolean::valueOf, String::valueOf).getValue();
+        Selection selection = new Selection(jobExecutor, new DefaultImageFileParser(metadataCache, headerMetadataOnly), imageProcessingExecutor.getExecutor(ImageProcessingWorkload.METADATA), imageProcessingExecutor.getExecutor(ImageProcessingWorkload.FILES), renameJournal);
+        selection.getDirectoryWatchEnabled().setValue(preferences.createObjectProperty("selection.watchDirectory", Boolean.TRUE, Boolean::valueOf, String::valueOf).getValue());
 
-        SelectionPane selectionPane = new SelectionPane(selection, jobExecutor, preferences);
+        SelectionPane selectionPane = new SelectionPane(selection, jobExecutor, imageProcessingExecutor, preferences);
         GridPane.setHgrow(selectionPane, Priority.ALWAYS);
 
         DirectoryPane directoryPane = new DirectoryPane();
@@ -44,6 +44,7 @@ public class ImageTigerPreferences {
 
     private static final Logger log = LoggerFactory.getLogger(ImageTigerPreferences.class);
 
+    private Path storageDirectory = null;
     private Properties propertyValues = null;
     private Path propertyValuesPath = null;
     private Map<String, StringProperty> properties = null;
@@ -61,6 +62,7 @@ public class ImageTigerPreferences {
             }
         }
 
+        this.setStorageDirectory(storageDirectory);
         this.setPropertyValues(propertyValues);
         this.setPropertyValuesPath(propertyValuesFile);
         this.setProperties(new HashMap<>());
@@ -151,6 +153,13 @@ public class ImageTigerPreferences {
         }
     }
 
+    public Path getStorageDirectory() {
+        return this.storageDirectory;
+    }
+    private void setStorageDirectory(Path storageDirectory) {
+        this.storageDirectory = storageDirectory;
+    }
+
     private Properties getPropertyValues() {
         return this.propertyValues;
     }
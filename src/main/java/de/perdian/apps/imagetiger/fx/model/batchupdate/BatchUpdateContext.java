@@ -18,6 +18,7 @@ package de.perdian.apps.imagetiger.fx.model.batchupdate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
@@ -27,15 +28,61 @@ class BatchUpdateContext {
     private List<BatchUpdateItem> items = null;
     private Map<String, Object> objects = null;
     private Pattern originalFileNamePattern = null;
+    private BatchUpdateExpressions expressions = null;
+    private Map<String, Integer> counterCallsPerItem = null;
+    private int counterWidth = 1;
 
     BatchUpdateContext(List<BatchUpdateItem> items, BatchUpdateSettings settings) {
         this.setItems(items);
         this.setObjects(new HashMap<>());
         this.setOriginalFileNamePattern(StringUtils.isEmpty(settings.getOriginalFileNamePattern().getValue()) ? null : Pattern.compile(settings.getOriginalFileNamePattern().getValue()));
+        this.setExpressions(new BatchUpdateExpressions());
+        this.setCounterWidth(this.countDigits(items.size()));
     }
 
-    BatchUpdateItemContext createItemContext(BatchUpdateItem item) {
-        return new BatchUpdateItemContext(this, item);
+    BatchUpdateItemContext createItemContext(BatchUpdateItem item, int itemIndex) {
+        return new BatchUpdateItemContext(this, item, itemIndex);
+    }
+
+    /**
+     * Computes the value of a counter. As long as no calls per item have been set, the counters are simply
+     * incremented upon each call, which requires the items to be evaluated one after another in the order of the list.
+     * Once the calls per item are known, the value is computed from the position of the item within the list, so that
+     * the items can be evaluated in any order and still receive the same values.
+     */
+    int computeCounterValue(String counterName, int itemIndex, int counterCall) {
+        if (this.getCounterCallsPerItem() == null) {
+            AtomicInteger counter = (AtomicInteger)this.getObjects().computeIfAbsent("counter." + counterName, key -> new AtomicInteger());
+            return counter.incrementAndGet();
+        } else {
+            return itemIndex * this.getCounterCallsPerItem().getOrDefault(counterName, 0) + counterCall;
+        }
+    }
+
+    /**
+     * Formats the value of a counter, padded with leading zeros up to the given width. This is called for every
+     * single counter value, so the digits are written directly instead of going through a {@code NumberFormat}.
+     */
+    String formatCounterValue(long value, int width) {
+        long remainingValue = Math.abs(value);
+        int signLength = value < 0 ? 1 : 0;
+        char[] valueCharacters = new char[signLength + Math.max(width, this.countDigits(remainingValue))];
+        for (int i=valueCharacters.length - 1; i >= signLength; i--) {
+            valueCharacters[i] = (char)('0' + remainingValue % 10);
+            remainingValue = remainingValue / 10;
+        }
+        if (signLength > 0) {
+            valueCharacters[0] = '-';
+        }
+        return new String(valueCharacters);
+    }
+
+    private int countDigits(long value) {
+        int digits = 1;
+        for (long remainingValue = Math.abs(value) / 10; remainingValue > 0; remainingValue = remainingValue / 10) {
+            digits++;
+        }
+        return digits;
     }
 
     List<BatchUpdateItem> getItems() {
@@ -59,4 +106,29 @@ class BatchUpdateContext {
         this.originalFileNamePattern = originalFileNamePattern;
     }
 
+    Map<String, Integer> getCounterCallsPerItem() {
+        return this.counterCallsPerItem;
+    }
+    void setCounterCallsPerItem(Map<String, Integer> counterCallsPerItem) {
+        this.counterCallsPerItem = counterCallsPerItem;
+    }
+
+    /**
+     * Gets the number of digits used for counter values if no explicit width has been requested, which is the number
+     * of digits required to display the number of items
+     */
+    int getCounterWidth() {
+        return this.counterWidth;
+    }
+    private void setCounterWidth(int counterWidth) {
+        this.counterWidth = counterWidth;
+    }
+
+    BatchUpdateExpressions getExpressions() {
+        return this.expressions;
+    }
+    private void setExpressions(BatchUpdateExpressions expressions) {
+        this.expressions = expressions;
+    }
+
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.model.batchupdate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.ParserContext;
+import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * Evaluates the templates of a batch update. Every template is parsed only once and then reused for all items of the
+ * batch update. Templates that are evaluated often enough are compiled into bytecode by SpEL, falling back to the
+ * interpreter for expressions that cannot be compiled.
+ *
+ * @author Christian Seifert
+ */
+
+class BatchUpdateExpressions {
+
+    private static final ExpressionParser EXPRESSION_PARSER = new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, BatchUpdateExpressions.class.getClassLoader()));
+    private static final ParserContext TEMPLATE_PARSER_CONTEXT = new TemplateParserContext("#{", "}");
+
+    private Map<String, Expression> expressions = new ConcurrentHashMap<>();
+    private ThreadLocal<StandardEvaluationContext> evaluationContexts = ThreadLocal.withInitial(StandardEvaluationContext::new);
+
+    String evaluate(String expressionValue, BatchUpdateItemExpressionRoot expressionRoot) {
+        Expression expression = this.expressions.computeIfAbsent(expressionValue, key -> EXPRESSION_PARSER.parseExpression(key, TEMPLATE_PARSER_CONTEXT));
+        return expression.getValue(this.evaluationContexts.get(), expressionRoot, String.class);
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.model.batchupdate;
+
+import java.util.function.Function;
+
+import de.perdian.apps.imagetiger.model.support.ChangeTrackingProperty;
+import javafx.beans.property.StringProperty;
+
+/**
+ * The values of an item that can be computed by a batch update, each of them backed by its own template within the
+ * {@link BatchUpdateSettings}.
+ *
+ * @author Christian Seifert
+ */
+
+public enum BatchUpdateField {
+
+    FILE_NAME(BatchUpdateSettings::getNewFileName, BatchUpdateItem::getFileNameWithoutExtension, true),
+    FILE_EXTENSION(BatchUpdateSettings::getNewFileExtension, BatchUpdateItem::getFileExtension, true),
+    FILE_DATE_LOCAL_STRING(BatchUpdateSettings::getNewFileDateLocalString, BatchUpdateItem::getFileDateLocalString, false),
+    FILE_DATE_LOCAL_ZONE(BatchUpdateSettings::getNewFileDateLocalZone, BatchUpdateItem::getFileDateLocalZone, false);
+
+    private Function<BatchUpdateSettings, StringProperty> templateFunction = null;
+    private Function<BatchUpdateItem, ChangeTrackingProperty<String>> propertyFunction = null;
+    private boolean emptyValueApplicable = false;
+
+    private BatchUpdateField(Function<BatchUpdateSettings, StringProperty> templateFunction, Function<BatchUpdateItem, ChangeTrackingProperty<String>> propertyFunction, boolean emptyValueApplicable) {
+        this.setTemplateFunction(templateFunction);
+        this.setPropertyFunction(propertyFunction);
+        this.setEmptyValueApplicable(emptyValueApplicable);
+    }
+
+    public StringProperty getTemplate(BatchUpdateSettings settings) {
+        return this.getTemplateFunction().apply(settings);
+    }
+
+    public ChangeTrackingProperty<String> getProperty(BatchUpdateItem item) {
+        return this.getPropertyFunction().apply(item);
+    }
+
+    private Function<BatchUpdateSettings, StringProperty> getTemplateFunction() {
+        return this.templateFunction;
+    }
+    private void setTemplateFunction(Function<BatchUpdateSettings, StringProperty> templateFunction) {
+        this.templateFunction = templateFunction;
+    }
+
+    private Function<BatchUpdateItem, ChangeTrackingProperty<String>> getPropertyFunction() {
+        return this.propertyFunction;
+    }
+    private void setPropertyFunction(Function<BatchUpdateItem, ChangeTrackingProperty<String>> propertyFunction) {
+        this.propertyFunction = propertyFunction;
+    }
+
+    /**
+     * Checks whether an empty result of the template is taken over into the item or simply ignored
+     */
+    boolean isEmptyValueApplicable() {
+        return this.emptyValueApplicable;
+    }
+    private void setEmptyValueApplicable(boolean emptyValueApplicable) {
+        this.emptyValueApplicable = emptyValueApplicable;
+    }
+
+}
@@ -16,9 +16,14 @@
 package de.perdian.apps.imagetiger.fx.model.batchupdate;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
 
+import de.perdian.apps.imagetiger.fx.model.batchupdate.expression.ExpressionFile;
 import de.perdian.apps.imagetiger.model.ImageFile;
 import de.perdian.apps.imagetiger.model.support.ChangeTrackingProperty;
+import javafx.beans.InvalidationListener;
+import javafx.beans.WeakInvalidationListener;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ReadOnlyBooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -32,6 +37,9 @@ public class BatchUpdateItem {
     private ChangeTrackingProperty<String> fileDateLocalString = null;
     private ChangeTrackingProperty<String> fileDateLocalZone = null;
     private ReadOnlyBooleanProperty dirty = null;
+    private volatile ExpressionFileSnapshot expressionFileSnapshot = null;
+    // Only exists to keep the listener reachable, as it is registered as weak listener at all properties
+    private InvalidationListener expressionFileInvalidationListener = null;
 
     public BatchUpdateItem(ImageFile imageFile) {
         this.setImageFile(imageFile);
@@ -61,6 +69,12 @@ public class BatchUpdateItem {
         this.setFileDateLocalZone(fileDateLocalZone);
         this.setDirty(dirtyProperty);
 
+        InvalidationListener expressionFileInvalidationListener = o -> this.setExpressionFileSnapshot(null);
+        fileNameWithoutExtension.getOriginalValue().addListener(new WeakInvalidationListener(expressionFileInvalidationListener));
+        fileExtension.getOriginalValue().addListener(new WeakInvalidationListener(expressionFileInvalidationListener));
+        imageFile.getProperties().values().forEach(property -> property.getOriginalValue().addListener(new WeakInvalidationListener(expressionFileInvalidationListener)));
+        this.setExpressionFileInvalidationListener(expressionFileInvalidationListener);
+
     }
 
     public void resetAllValues() {
@@ -71,6 +85,21 @@ public class BatchUpdateItem {
         this.getFileDateLocalZone().resetValue(this.getImageFile().getFileDateLocalZone().getOriginalValue().getValue());
     }
 
+    /**
+     * Gets the snapshot of the original values against which the batch update expressions are evaluated. The snapshot
+     * is created upon the first request and reused until either a different pattern is requested or one of the
+     * original values of the underlying image file is updated.
+     */
+    public ExpressionFile getExpressionFile(Pattern originalFileNamePattern) {
+        String originalFileNamePatternValue = originalFileNamePattern == null ? null : originalFileNamePattern.pattern();
+        ExpressionFileSnapshot expressionFileSnapshot = this.getExpressionFileSnapshot();
+        if (expressionFileSnapshot == null || !Objects.equals(originalFileNamePatternValue, expressionFileSnapshot.originalFileNamePatternValue)) {
+            expressionFileSnapshot = new ExpressionFileSnapshot(originalFileNamePatternValue, new ExpressionFile(this, originalFileNamePattern));
+            this.setExpressionFileSnapshot(expressionFileSnapshot);
+        }
+        return expressionFileSnapshot.expressionFile;
+    }
+
     public ImageFile getImageFile() {
         return this.imageFile;
     }
@@ -120,4 +149,30 @@ public class BatchUpdateItem {
         this.dirty = dirty;
     }
 
+    private ExpressionFileSnapshot getExpressionFileSnapshot() {
+        return this.expressionFileSnapshot;
+    }
+    private void setExpressionFileSnapshot(ExpressionFileSnapshot expressionFileSnapshot) {
+        this.expressionFileSnapshot = expressionFileSnapshot;
+    }
+
+    private InvalidationListener getExpressionFileInvalidationListener() {
+        return this.expressionFileInvalidationListener;
+    }
+    private void setExpressionFileInvalidationListener(InvalidationListener expressionFileInvalidationListener) {
+        this.expressionFileInvalidationListener = expressionFileInvalidationListener;
+    }
+
+    private static class ExpressionFileSnapshot {
+
+        private String originalFileNamePatternValue = null;
+        private ExpressionFile expressionFile = null;
+
+        ExpressionFileSnapshot(String originalFileNamePatternValue, ExpressionFile expressionFile) {
+            this.originalFileNamePatternValue = originalFileNamePatternValue;
+            this.expressionFile = expressionFile;
+        }
+
+    }
+
 }
@@ -15,44 +15,62 @@
  */
 package de.perdian.apps.imagetiger.fx.model.batchupdate;
 
-import org.springframework.expression.EvaluationContext;
-import org.springframework.expression.Expression;
-import org.springframework.expression.ExpressionParser;
-import org.springframework.expression.common.TemplateParserContext;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.StandardEvaluationContext;
+import java.util.HashMap;
+import java.util.Map;
 
 class BatchUpdateItemContext {
 
     private BatchUpdateContext updateContext = null;
     private BatchUpdateItem item = null;
+    private int itemIndex = 0;
+    private Map<String, Integer> counterCalls = null;
 
-    BatchUpdateItemContext(BatchUpdateContext updateContext, BatchUpdateItem item) {
+    BatchUpdateItemContext(BatchUpdateContext updateContext, BatchUpdateItem item, int itemIndex) {
         this.setUpdateContext(updateContext);
         this.setItem(item);
+        this.setItemIndex(itemIndex);
+        this.setCounterCalls(new HashMap<>());
     }
 
     String evaluate(String expressionValue) {
-        BatchUpdateItemExpressionRoot expressionRoot = new BatchUpdateItemExpressionRoot(this.getItem(), this.getUpdateContext());
-        EvaluationContext evaluationContext = new StandardEvaluationContext(expressionRoot);
-        TemplateParserContext templateParserContext = new TemplateParserContext("#{", "}");
-        ExpressionParser expressionParser = new SpelExpressionParser();
-        Expression expression = expressionParser.parseExpression(expressionValue, templateParserContext);
-        return expression.getValue(evaluationContext, String.class);
+        BatchUpdateItemExpressionRoot expressionRoot = new BatchUpdateItemExpressionRoot(this);
+        return this.getUpdateContext().getExpressions().evaluate(expressionValue, expressionRoot);
     }
 
-    private BatchUpdateContext getUpdateContext() {
+    int nextCounterValue(String counterName) {
+        int counterCall = this.getCounterCalls().merge(counterName, 1, Integer::sum);
+        return this.getUpdateContext().computeCounterValue(counterName, this.getItemIndex(), counterCall);
+    }
+
+    BatchUpdateContext getUpdateContext() {
         return this.updateContext;
     }
     private void setUpdateContext(BatchUpdateContext updateContext) {
         this.updateContext = updateContext;
     }
 
-    private BatchUpdateItem getItem() {
+    BatchUpdateItem getItem() {
         return this.item;
     }
     private void setItem(BatchUpdateItem item) {
         this.item = item;
     }
 
+    int getItemIndex() {
+        return this.itemIndex;
+    }
+    private void setItemIndex(int itemIndex) {
+        this.itemIndex = itemIndex;
+    }
+
+    /**
+     * Gets the number of times each counter has been called while evaluating the expressions for this item
+     */
+    Map<String, Integer> getCounterCalls() {
+        return this.counterCalls;
+    }
+    private void setCounterCalls(Map<String, Integer> counterCalls) {
+        this.counterCalls = counterCalls;
+    }
+
 }
@@ -15,22 +15,16 @@
  */
 package de.perdian.apps.imagetiger.fx.model.batchupdate;
 
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-
 import de.perdian.apps.imagetiger.fx.model.batchupdate.expression.ExpressionFile;
 
 public class BatchUpdateItemExpressionRoot {
 
-    private BatchUpdateContext updateContext = null;
+    private BatchUpdateItemContext itemContext = null;
     private ExpressionFile file = null;
 
-    BatchUpdateItemExpressionRoot(BatchUpdateItem item, BatchUpdateContext updateContext) {
-        this.setUpdateContext(updateContext);
-        this.setFile(new ExpressionFile(item, updateContext.getOriginalFileNamePattern()));
+    BatchUpdateItemExpressionRoot(BatchUpdateItemContext itemContext) {
+        this.setItemContext(itemContext);
+        this.setFile(itemContext.getItem().getExpressionFile(itemContext.getUpdateContext().getOriginalFileNamePattern()));
     }
 
     public String counter() {
@@ -38,23 +32,38 @@ public class BatchUpdateItemExpressionRoot {
     }
 
     public String counter(String counterName) {
-        AtomicInteger counter = (AtomicInteger)this.getUpdateContext().getObjects().computeIfAbsent("counter." + counterName, key -> new AtomicInteger());
-        int counterValue = counter.incrementAndGet();
-        int maxCounterCharacters = String.valueOf(this.getUpdateContext().getItems().size()).length();
-        String counterFormatString = IntStream.range(0, maxCounterCharacters).mapToObj(i -> "0").collect(Collectors.joining());
-        NumberFormat counterFormat = new DecimalFormat(counterFormatString);
-        return counterFormat.format(counterValue);
+        return this.counter(counterName, 1, 1);
+    }
+
+    public String counter(String counterName, int start, int step) {
+        return this.counter(counterName, start, step, 0);
+    }
+
+    /**
+     * Gets the next value of a counter, padded with leading zeros
+     *
+     * @param start
+     *     the value returned by the first call of the counter
+     * @param step
+     *     the difference between two subsequent values of the counter
+     * @param width
+     *     the minimum number of digits, or {@code 0} to use as many digits as required by the number of items
+     */
+    public String counter(String counterName, int start, int step, int width) {
+        int counterCall = this.getItemContext().nextCounterValue(counterName);
+        BatchUpdateContext updateContext = this.getItemContext().getUpdateContext();
+        return updateContext.formatCounterValue(start + (long)(counterCall - 1) * step, width > 0 ? width : updateContext.getCounterWidth());
     }
 
     public String lowercase(String input) {
         return input == null ? "" : input.toLowerCase();
     }
 
-    private BatchUpdateContext getUpdateContext() {
-        return this.updateContext;
+    private BatchUpdateItemContext getItemContext() {
+        return this.itemContext;
     }
-    private void setUpdateContext(BatchUpdateContext updateContext) {
-        this.updateContext = updateContext;
+    private void setItemContext(BatchUpdateItemContext itemContext) {
+        this.itemContext = itemContext;
     }
 
     public ExpressionFile getFile() {
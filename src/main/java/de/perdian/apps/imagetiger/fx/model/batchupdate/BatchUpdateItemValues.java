@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.model.batchupdate;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The values computed for a single item, which are kept separately until they can be transferred into the item on
+ * the thread owning it.
+ *
+ * @author Christian Seifert
+ */
+
+class BatchUpdateItemValues {
+
+    private boolean[] evaluated = new boolean[BatchUpdateField.values().length];
+    private String[] values = new String[BatchUpdateField.values().length];
+
+    /**
+     * Collects the templates for the given fields from the settings, skipping all fields without a template
+     */
+    static Map<BatchUpdateField, String> collectTemplates(BatchUpdateSettings settings, Collection<BatchUpdateField> fields) {
+        Map<BatchUpdateField, String> templates = new EnumMap<>(BatchUpdateField.class);
+        for (BatchUpdateField field : fields) {
+            String template = field.getTemplate(settings).getValue();
+            if (StringUtils.isNotEmpty(template)) {
+                templates.put(field, template);
+            }
+        }
+        return templates;
+    }
+
+    static BatchUpdateItemValues evaluate(BatchUpdateItemContext itemContext, Map<BatchUpdateField, String> templates) {
+        BatchUpdateItemValues itemValues = new BatchUpdateItemValues();
+        for (Map.Entry<BatchUpdateField, String> template : templates.entrySet()) {
+            itemValues.evaluated[template.getKey().ordinal()] = true;
+            itemValues.values[template.getKey().ordinal()] = itemContext.evaluate(template.getValue());
+        }
+        return itemValues;
+    }
+
+    void applyTo(BatchUpdateItem item) {
+        for (BatchUpdateField field : BatchUpdateField.values()) {
+            String value = this.values[field.ordinal()];
+            if (this.evaluated[field.ordinal()] && (field.isEmptyValueApplicable() || StringUtils.isNotEmpty(value))) {
+                field.getProperty(item).getNewValue().setValue(value);
+            }
+        }
+    }
+
+}
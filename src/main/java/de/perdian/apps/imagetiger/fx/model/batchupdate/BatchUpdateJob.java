@@ -15,57 +15,119 @@
  */
 package de.perdian.apps.imagetiger.fx.model.batchupdate;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import de.perdian.apps.imagetiger.fx.support.jobs.Job;
 import de.perdian.apps.imagetiger.fx.support.jobs.JobContext;
 
 public class BatchUpdateJob implements Job {
 
+    private static final Logger log = LoggerFactory.getLogger(BatchUpdateJob.class);
+    private static final int PARALLEL_CHUNK_SIZE = 64;
+
     private List<BatchUpdateItem> items = null;
     private BatchUpdateSettings settings = null;
+    private Executor executor = null;
 
     public BatchUpdateJob(List<BatchUpdateItem> items, BatchUpdateSettings settings) {
+        this(items, settings, null);
+    }
+
+    /**
+     * @param executor
+     *     the executor on which the items are evaluated in parallel or {@code null} if the items should be evaluated
+     *     one after another within the job thread
+     */
+    public BatchUpdateJob(List<BatchUpdateItem> items, BatchUpdateSettings settings, Executor executor) {
         this.setItems(items);
         this.setSettings(settings);
+        this.setExecutor(executor);
     }
 
     @Override
     public void execute(JobContext jobContext) {
-        BatchUpdateContext updateContext = new BatchUpdateContext(this.getItems(), this.getSettings());
-        for (int i=0; i < this.getItems().size() && !jobContext.isCancelled(); i++) {
+        Map<BatchUpdateField, String> templates = BatchUpdateItemValues.collectTemplates(this.getSettings(), List.of(BatchUpdateField.values()));
+        if (this.getExecutor() == null || this.getItems().size() < 2) {
+            this.executeSequential(new BatchUpdateContext(this.getItems(), this.getSettings()), templates, jobContext);
+        } else if (!this.executeParallel(new BatchUpdateContext(this.getItems(), this.getSettings()), templates, jobContext)) {
+            log.debug("Counters are not called the same number of times for every item, evaluating items sequentially");
+            this.executeSequential(new BatchUpdateContext(this.getItems(), this.getSettings()), templates, jobContext);
+        }
+    }
 
+    private void executeSequential(BatchUpdateContext updateContext, Map<BatchUpdateField, String> templates, JobContext jobContext) {
+        for (int i=0; i < this.getItems().size() && !jobContext.isCancelled(); i++) {
             BatchUpdateItem item = this.getItems().get(i);
             jobContext.updateProgress("Updating file: " + item.getFileName().getOriginalValue().getValue(), i, this.getItems().size());
+            BatchUpdateItemValues.evaluate(updateContext.createItemContext(item, i), templates).applyTo(item);
+        }
+    }
 
-            BatchUpdateItemContext itemContext = updateContext.createItemContext(item);
-            String newFileName = this.getSettings().getNewFileName().getValue();
-            String newFileExtension = this.getSettings().getNewFileExtension().getValue();
-            if (StringUtils.isNotEmpty(newFileName)) {
-                item.getFileNameWithoutExtension().getNewValue().setValue(itemContext.evaluate(newFileName));
-            }
-            if (StringUtils.isNotEmpty(newFileExtension)) {
-                item.getFileExtension().getNewValue().setValue(itemContext.evaluate(newFileExtension));
-            }
+    /**
+     * Evaluates the items in parallel. The first item is evaluated upfront to find out how often each counter is
+     * called per item, which allows the counter values for all other items to be computed from their position within
+     * the list. If any item calls the counters a different number of times (e.g. because a counter is only used within
+     * a condition) the values would differ from a sequential evaluation, so nothing is applied at all.
+     *
+     * @return
+     *     {@code true} if the items have been evaluated, {@code false} if they need to be evaluated sequentially
+     */
+    private boolean executeParallel(BatchUpdateContext updateContext, Map<BatchUpdateField, String> templates, JobContext jobContext) {
 
-            String newFileDateLocalString = this.getSettings().getNewFileDateLocalString().getValue();
-            String newFileDateLocalZone = this.getSettings().getNewFileDateLocalZone().getValue();
-            if (StringUtils.isNotEmpty(newFileDateLocalString)) {
-                String newFileDateLocalStringValue = itemContext.evaluate(newFileDateLocalString);
-                if (StringUtils.isNotEmpty(newFileDateLocalStringValue)) {
-                    item.getFileDateLocalString().getNewValue().setValue(newFileDateLocalStringValue);
-                }
-            }
-            if (StringUtils.isNotEmpty(newFileDateLocalZone)) {
-                String newFileDateLocalZoneValue = itemContext.evaluate(newFileDateLocalZone);
-                if (StringUtils.isNotEmpty(newFileDateLocalZoneValue)) {
-                    item.getFileDateLocalZone().getNewValue().setValue(newFileDateLocalZoneValue);
+        List<BatchUpdateItem> items = this.getItems();
+        BatchUpdateItemValues[] itemValues = new BatchUpdateItemValues[items.size()];
+        BatchUpdateItemContext firstItemContext = updateContext.createItemContext(items.get(0), 0);
+        itemValues[0] = BatchUpdateItemValues.evaluate(firstItemContext, templates);
+        jobContext.updateProgress("Updating file: " + items.get(0).getFileName().getOriginalValue().getValue(), 1, items.size());
+        Map<String, Integer> counterCallsPerItem = Collections.unmodifiableMap(new HashMap<>(firstItemContext.getCounterCalls()));
+        updateContext.setCounterCallsPerItem(counterCallsPerItem);
+
+        AtomicBoolean countersConsistent = new AtomicBoolean(true);
+        AtomicInteger processedItemsCounter = new AtomicInteger(1);
+        List<CompletableFuture<Void>> chunkFutures = new ArrayList<>();
+        for (int chunkStart = 1; chunkStart < items.size(); chunkStart += PARALLEL_CHUNK_SIZE) {
+            int chunkFrom = chunkStart;
+            int chunkTo = Math.min(items.size(), chunkStart + PARALLEL_CHUNK_SIZE);
+            chunkFutures.add(CompletableFuture.runAsync(() -> {
+                for (int i=chunkFrom; i < chunkTo && !jobContext.isCancelled() && countersConsistent.get(); i++) {
+                    BatchUpdateItemContext itemContext = updateContext.createItemContext(items.get(i), i);
+                    itemValues[i] = BatchUpdateItemValues.evaluate(itemContext, templates);
+                    if (!counterCallsPerItem.equals(itemContext.getCounterCalls())) {
+                        countersConsistent.set(false);
+                    }
+                    jobContext.updateProgress("Updating file: " + items.get(i).getFileName().getOriginalValue().getValue(), processedItemsCounter.incrementAndGet(), items.size());
                 }
-            }
+            }, this.getExecutor()));
+        }
+        try {
+            CompletableFuture.allOf(chunkFutures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+        }
 
+        // When the job has been cancelled the chunks have stopped at different positions, but only the items up to the
+        // first one that hasn't been evaluated are applied, which is the same state a sequential evaluation leaves
+        if (!countersConsistent.get()) {
+            return false;
+        } else {
+            for (int i=0; i < items.size() && itemValues[i] != null; i++) {
+                itemValues[i].applyTo(items.get(i));
+            }
+            return true;
         }
+
     }
 
     private List<BatchUpdateItem> getItems() {
@@ -82,4 +144,11 @@ public class BatchUpdateJob implements Job {
         this.settings = settings;
     }
 
+    private Executor getExecutor() {
+        return this.executor;
+    }
+    private void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
 }
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.model.batchupdate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+
+/**
+ * Computes the new values of the batch update items in the background while the templates are still being edited.
+ * Each computation only evaluates the fields whose templates have changed, starts with the items currently visible to
+ * the user and is abandoned as soon as a newer computation has been requested.
+ *
+ * @author Christian Seifert
+ */
+
+public class BatchUpdatePreview {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchUpdatePreview.class);
+    private static final int CHUNK_SIZE = 64;
+    private static final int MAX_PENDING_CHUNKS = 8;
+    private static final ExecutorService COORDINATOR_EXECUTOR = BatchUpdatePreview.createCoordinatorExecutor();
+
+    private List<BatchUpdateItem> items = null;
+    private BatchUpdateSettings settings = null;
+    private Executor executor = null;
+    private AtomicLong generation = new AtomicLong();
+    private BooleanProperty busyProperty = null;
+
+    public BatchUpdatePreview(List<BatchUpdateItem> items, BatchUpdateSettings settings, Executor executor) {
+        this.setItems(items);
+        this.setSettings(settings);
+        this.setExecutor(executor);
+        this.setBusyProperty(new SimpleBooleanProperty(false));
+    }
+
+    /**
+     * Computes the given fields for all items. The templates are taken from the settings right away, so this method
+     * needs to be called on the JavaFX application thread.
+     *
+     * @param fields
+     *     the fields whose templates have been changed
+     * @param priorityItems
+     *     the items to be computed before all others, usually the ones currently visible to the user
+     */
+    public void compute(Set<BatchUpdateField> fields, List<BatchUpdateItem> priorityItems) {
+        long generation = this.getGeneration().incrementAndGet();
+        List<BatchUpdateItem> items = List.copyOf(this.getItems());
+        Set<BatchUpdateField> computeFields = this.collectComputeFields(fields);
+        Map<BatchUpdateField, String> templates = BatchUpdateItemValues.collectTemplates(this.getSettings(), computeFields);
+        for (BatchUpdateField field : computeFields) {
+            if (!templates.containsKey(field)) {
+                items.forEach(item -> field.getProperty(item).getNewValue().setValue(field.getProperty(item).getOriginalValue().getValue()));
+            }
+        }
+        this.getBusyProperty().setValue(false);
+        if (!items.isEmpty() && !templates.isEmpty()) {
+            try {
+                BatchUpdateContext updateContext = new BatchUpdateContext(items, this.getSettings());
+                BatchUpdateContext sequentialUpdateContext = new BatchUpdateContext(items, this.getSettings());
+                List<Integer> itemIndices = this.collectItemIndices(items, priorityItems);
+                this.getBusyProperty().setValue(true);
+                COORDINATOR_EXECUTOR.execute(() -> this.computeItems(generation, items, itemIndices, templates, updateContext, sequentialUpdateContext));
+            } catch (Exception e) {
+                log.debug("Cannot compute preview for settings: {}", this.getSettings(), e);
+            }
+        }
+    }
+
+    /**
+     * Abandons the computation currently in progress. Needs to be called on the JavaFX application thread.
+     */
+    public void cancel() {
+        this.getGeneration().incrementAndGet();
+        this.getBusyProperty().setValue(false);
+    }
+
+    /**
+     * Counters are shared between all fields, so a single field can only be computed on its own as long as none of
+     * the other fields uses a counter as well, otherwise the counter values would differ from computing all fields.
+     */
+    private Set<BatchUpdateField> collectComputeFields(Set<BatchUpdateField> fields) {
+        EnumSet<BatchUpdateField> computeFields = EnumSet.noneOf(BatchUpdateField.class);
+        computeFields.addAll(fields);
+        for (BatchUpdateField field : EnumSet.complementOf(computeFields)) {
+            String template = field.getTemplate(this.getSettings()).getValue();
+            if (template != null && template.contains("counter")) {
+                return EnumSet.allOf(BatchUpdateField.class);
+            }
+        }
+        return computeFields;
+    }
+
+    private List<Integer> collectItemIndices(List<BatchUpdateItem> items, List<BatchUpdateItem> priorityItems) {
+        Set<BatchUpdateItem> priorityItemsSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        priorityItemsSet.addAll(priorityItems);
+        List<Integer> itemIndices = new ArrayList<>(items.size());
+        List<Integer> otherItemIndices = new ArrayList<>(items.size());
+        for (int i=1; i < items.size(); i++) {
+            (priorityItemsSet.contains(items.get(i)) ? itemIndices : otherItemIndices).add(i);
+        }
+        itemIndices.addAll(otherItemIndices);
+        return itemIndices;
+    }
+
+    /**
+     * Evaluates the first item to find out how often each counter is called per item, so that all other items can be
+     * evaluated in parallel and in any order (see {@link BatchUpdateContext#computeCounterValue(String, int, int)}).
+     * If it turns out that the counters aren't called equally often for every item, all items are evaluated again one
+     * after another.
+     * <p>
+     * This runs on the coordinator thread, which hands out the chunks to the executor one after another and never has
+     * more than {@link #MAX_PENDING_CHUNKS} of them waiting, so that chunks of an abandoned computation don't occupy
+     * the queue of the executor and a new computation never has to wait for them.
+     */
+    private void computeItems(long generation, List<BatchUpdateItem> items, List<Integer> itemIndices, Map<BatchUpdateField, String> templates, BatchUpdateContext updateContext, BatchUpdateContext sequentialUpdateContext) {
+        try {
+            if (this.getGeneration().get() == generation) {
+
+                BatchUpdateItemContext firstItemContext = updateContext.createItemContext(items.get(0), 0);
+                BatchUpdateItemValues firstItemValues = BatchUpdateItemValues.evaluate(firstItemContext, templates);
+                Map<String, Integer> counterCallsPerItem = Collections.unmodifiableMap(new HashMap<>(firstItemContext.getCounterCalls()));
+                updateContext.setCounterCallsPerItem(counterCallsPerItem);
+                this.applyItemValues(generation, items, List.of(0), List.of(firstItemValues), null);
+
+                AtomicBoolean countersConsistent = new AtomicBoolean(true);
+                Semaphore pendingChunks = new Semaphore(MAX_PENDING_CHUNKS);
+                for (int chunkStart = 0; chunkStart < itemIndices.size() && this.getGeneration().get() == generation && countersConsistent.get(); chunkStart += CHUNK_SIZE) {
+                    List<Integer> chunkItemIndices = itemIndices.subList(chunkStart, Math.min(itemIndices.size(), chunkStart + CHUNK_SIZE));
+                    pendingChunks.acquireUninterruptibly();
+                    this.getExecutor().execute(() -> {
+                        try {
+                            this.computeChunk(generation, items, chunkItemIndices, templates, updateContext, counterCallsPerItem, countersConsistent);
+                        } finally {
+                            pendingChunks.release();
+                        }
+                    });
+                }
+                pendingChunks.acquireUninterruptibly(MAX_PENDING_CHUNKS);
+
+                if (!countersConsistent.get() && this.getGeneration().get() == generation) {
+                    log.debug("Counters are not called the same number of times for every item, computing preview sequentially");
+                    this.computeItemsSequentially(generation, items, templates, sequentialUpdateContext);
+                }
+
+            }
+        } catch (Exception e) {
+            log.debug("Cannot compute preview for settings: {}", this.getSettings(), e);
+        } finally {
+            Platform.runLater(() -> {
+                if (this.getGeneration().get() == generation) {
+                    this.getBusyProperty().setValue(false);
+                }
+            });
+        }
+    }
+
+    private void computeChunk(long generation, List<BatchUpdateItem> items, List<Integer> chunkItemIndices, Map<BatchUpdateField, String> templates, BatchUpdateContext updateContext, Map<String, Integer> counterCallsPerItem, AtomicBoolean countersConsistent) {
+        try {
+            List<BatchUpdateItemValues> chunkItemValues = new ArrayList<>(chunkItemIndices.size());
+            for (int i=0; i < chunkItemIndices.size(); i++) {
+                if (this.getGeneration().get() != generation || !countersConsistent.get()) {
+                    return;
+                }
+                BatchUpdateItemContext itemContext = updateContext.createItemContext(items.get(chunkItemIndices.get(i)), chunkItemIndices.get(i));
+                chunkItemValues.add(BatchUpdateItemValues.evaluate(itemContext, templates));
+                if (!counterCallsPerItem.equals(itemContext.getCounterCalls())) {
+                    countersConsistent.set(false);
+                    return;
+                }
+            }
+            this.applyItemValues(generation, items, chunkItemIndices, chunkItemValues, countersConsistent);
+        } catch (Exception e) {
+            log.debug("Cannot compute preview for settings: {}", this.getSettings(), e);
+        }
+    }
+
+    private void computeItemsSequentially(long generation, List<BatchUpdateItem> items, Map<BatchUpdateField, String> templates, BatchUpdateContext updateContext) {
+        for (int chunkStart = 0; chunkStart < items.size(); chunkStart += CHUNK_SIZE) {
+            List<Integer> chunkItemIndices = new ArrayList<>(CHUNK_SIZE);
+            List<BatchUpdateItemValues> chunkItemValues = new ArrayList<>(CHUNK_SIZE);
+            for (int i=chunkStart; i < Math.min(items.size(), chunkStart + CHUNK_SIZE); i++) {
+                if (this.getGeneration().get() != generation) {
+                    return;
+                }
+                chunkItemIndices.add(i);
+                chunkItemValues.add(BatchUpdateItemValues.evaluate(updateContext.createItemContext(items.get(i), i), templates));
+            }
+            this.applyItemValues(generation, items, chunkItemIndices, chunkItemValues, null);
+        }
+    }
+
+    private void applyItemValues(long generation, List<BatchUpdateItem> items, List<Integer> itemIndices, List<BatchUpdateItemValues> itemValues, AtomicBoolean countersConsistent) {
+        Platform.runLater(() -> {
+            if (this.getGeneration().get() == generation && (countersConsistent == null || countersConsistent.get())) {
+                for (int i=0; i < itemValues.size(); i++) {
+                    itemValues.get(i).applyTo(items.get(itemIndices.get(i)));
+                }
+            }
+        });
+    }
+
+    private static ExecutorService createCoordinatorExecutor() {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "imagetiger-batchupdate-preview");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Whether a computation has been started that hasn't yet been completely transferred into the items
+     */
+    public ReadOnlyBooleanProperty getBusy() {
+        return this.getBusyProperty();
+    }
+
+    private BooleanProperty getBusyProperty() {
+        return this.busyProperty;
+    }
+    private void setBusyProperty(BooleanProperty busyProperty) {
+        this.busyProperty = busyProperty;
+    }
+
+    private List<BatchUpdateItem> getItems() {
+        return this.items;
+    }
+    private void setItems(List<BatchUpdateItem> items) {
+        this.items = items;
+    }
+
+    private BatchUpdateSettings getSettings() {
+        return this.settings;
+    }
+    private void setSettings(BatchUpdateSettings settings) {
+        this.settings = settings;
+    }
+
+    private Executor getExecutor() {
+        return this.executor;
+    }
+    private void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    private AtomicLong getGeneration() {
+        return this.generation;
+    }
+
+}
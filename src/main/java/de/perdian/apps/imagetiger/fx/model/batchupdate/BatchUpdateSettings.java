@@ -23,6 +23,8 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 
 import de.perdian.apps.imagetiger.fx.ImageTigerPreferences;
 import javafx.beans.binding.Bindings;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.beans.value.ChangeListener;
@@ -36,6 +38,7 @@ public class BatchUpdateSettings {
     private StringProperty newFileDateLocalString = null;
     private StringProperty newFileDateLocalZone = null;
     private ObservableBooleanValue ready = null;
+    private BooleanProperty livePreview = null;
     private List<ChangeListener<String>> changeListeners = null;
 
     public BatchUpdateSettings(ImageTigerPreferences preferences) {
@@ -46,6 +49,7 @@ public class BatchUpdateSettings {
         this.getNewFileExtension().bindBidirectional(preferences.createProperty("BatchUpdateSettings.newFileExtension", "#{lowercase(file.extension)}"));
         this.getNewFileDateLocalString().bindBidirectional(preferences.createProperty("BatchUpdateSettings.newFileDateLocalString", null));
         this.getNewFileDateLocalZone().bindBidirectional(preferences.createProperty("BatchUpdateSettings.newFileDateLocalZone", null));
+        this.getLivePreview().bindBidirectional(preferences.createObjectProperty("BatchUpdateSettings.livePreview", Boolean.FALSE, Boolean::valueOf, String::valueOf));
     }
 
     public BatchUpdateSettings() {
@@ -83,6 +87,8 @@ public class BatchUpdateSettings {
         ObservableBooleanValue ready = Bindings.or(newFileNameReady, newFileDateReady);
         this.setReady(ready);
 
+        this.setLivePreview(new SimpleBooleanProperty(false));
+
     }
 
     @Override
@@ -138,6 +144,16 @@ public class BatchUpdateSettings {
         this.ready = ready;
     }
 
+    /**
+     * Whether the new values are computed automatically while the templates are being edited
+     */
+    public BooleanProperty getLivePreview() {
+        return this.livePreview;
+    }
+    private void setLivePreview(BooleanProperty livePreview) {
+        this.livePreview = livePreview;
+    }
+
     public void addChangeListener(ChangeListener<String> changeListener) {
         this.getChangeListeners().add(changeListener);
     }
@@ -15,6 +15,7 @@
  */
 package de.perdian.apps.imagetiger.fx.model.batchupdate.expression;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -24,6 +25,12 @@ import org.apache.commons.lang3.StringUtils;
 
 import de.perdian.apps.imagetiger.fx.model.batchupdate.BatchUpdateItem;
 
+/**
+ * Immutable snapshot of the original values of a file, as seen from within a batch update expression
+ *
+ * @author Christian Seifert
+ */
+
 public class ExpressionFile {
 
     private String name = null;
@@ -35,11 +42,11 @@ public class ExpressionFile {
     public ExpressionFile(BatchUpdateItem item, Pattern originalFileNamePattern) {
         this.setName(item.getFileNameWithoutExtension().getOriginalValue().getValue());
         this.setExtension(item.getFileExtension().getOriginalValue().getValue());
-        this.setProperties(
+        this.setProperties(Collections.unmodifiableMap(
             item.getImageFile().getProperties().entrySet().stream()
                 .filter(entry -> StringUtils.isNotEmpty(entry.getValue().getOriginalValue().getValue()))
                 .collect(Collectors.toMap(entry -> entry.getKey().toString().toLowerCase(), entry -> entry.getValue().getOriginalValue().getValue()))
-        );
+        ));
 
         if (originalFileNamePattern != null) {
             Matcher originalFileNameMatcher = originalFileNamePattern.matcher(item.getFileNameWithoutExtension().getOriginalValue().getValue());
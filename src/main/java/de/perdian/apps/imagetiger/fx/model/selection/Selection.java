@@ -17,20 +17,40 @@ package de.perdian.apps.imagetiger.fx.model.selection;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.perdian.apps.imagetiger.fx.support.jobs.JobClass;
 import de.perdian.apps.imagetiger.fx.support.jobs.JobContext;
 import de.perdian.apps.imagetiger.fx.support.jobs.JobExecutor;
 import de.perdian.apps.imagetiger.model.ImageFile;
 import de.perdian.apps.imagetiger.model.ImageFileParser;
 import de.perdian.apps.imagetiger.model.impl.DefaultImageFileParser;
+import de.perdian.apps.imagetiger.model.impl.RenameJournal;
+import de.perdian.apps.imagetiger.model.impl.RenamePlan;
+import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.ReadOnlyBooleanProperty;
@@ -44,6 +64,9 @@ import javafx.collections.ObservableList;
 public class Selection {
 
     private static final Logger log = LoggerFactory.getLogger(Selection.class);
+    private static final long DIRECTORY_WATCH_DEBOUNCE_MILLIS = 500;
+    private static final int PARSER_WINDOW_SIZE = 256;
+    private static final Comparator<ImageFile> IMAGE_FILE_COMPARATOR = Comparator.comparing(ImageFile::getOsFile, SelectionDirectoryScanner.FILE_NAME_COMPARATOR);
 
     private BooleanProperty busy = null;
     private BooleanProperty dirty = null;
@@ -52,10 +75,19 @@ public class Selection {
     private ObservableList<ImageFile> availableImageFiles = null;
     private ObservableList<ImageFile> selectedImageFiles = null;
     private ObservableList<ImageFile> dirtyImageFiles = null;
+    private Executor parserExecutor = null;
+    private Executor saveExecutor = null;
+    private RenameJournal renameJournal = null;
     private JobExecutor jobExecutor = null;
-    private ImageFileParser imageFileParser = new DefaultImageFileParser();
+    private ImageFileParser imageFileParser = null;
+    private BooleanProperty directoryWatchEnabled = null;
+    private SelectionDirectoryWatcher directoryWatcher = null;
 
     public Selection(JobExecutor jobExecutor) {
+        this(jobExecutor, new DefaultImageFileParser(), ForkJoinPool.commonPool(), ForkJoinPool.commonPool(), new RenameJournal(Path.of(System.getProperty("java.io.tmpdir"), "imagetiger-rename-journal")));
+    }
+
+    public Selection(JobExecutor jobExecutor, ImageFileParser imageFileParser, Executor parserExecutor, Executor saveExecutor, RenameJournal renameJournal) {
 
         ObservableList<ImageFile> dirtyImageFiles = FXCollections.observableArrayList();
         ObservableList<ImageFile> availableImageFiles = FXCollections.observableArrayList();
@@ -81,23 +113,48 @@ public class Selection {
         this.setDirtyImageFiles(dirtyImageFiles);;
         this.setSelectedImageFiles(FXCollections.observableArrayList());
         this.setPrimaryImageFile(new SimpleObjectProperty<>());
+        this.setParserExecutor(parserExecutor);
+        this.setSaveExecutor(saveExecutor);
+        this.setRenameJournal(renameJournal);
         this.setJobExecutor(jobExecutor);
+        this.setImageFileParser(imageFileParser);
+
+        // Changes made to the selected directory outside of the application are picked up and merged into the
+        // available image files without having to parse the whole directory again
+        BooleanProperty directoryWatchEnabled = new SimpleBooleanProperty(true);
+        directoryWatchEnabled.addListener((o, oldValue, newValue) -> this.updateDirectoryWatcher(this.getSelectedDirectory().getValue()));
+        this.setDirectoryWatchEnabled(directoryWatchEnabled);
+        this.setDirectoryWatcher(new SelectionDirectoryWatcher(DIRECTORY_WATCH_DEBOUNCE_MILLIS, this::refreshImageFiles));
 
     }
 
     public void updateSelectedDirectory(File newDirectory, boolean waitUntilCompleted) {
+        this.updateDirectoryWatcher(newDirectory);
         Future<?> future = this.getJobExecutor().executeJob(context -> {
-            List<ImageFile> imageFiles = this.parseImageFiles(newDirectory, context);
-            synchronized (this) {
-                if (!context.isCancelled()) {
-                    this.primaryImageFile.setValue(null);
-                    this.selectedDirectory.setValue(newDirectory);
-                    this.selectedImageFiles.clear();
-                    this.dirtyImageFiles.clear();
-                    this.availableImageFiles.setAll(imageFiles);
+            if (waitUntilCompleted) {
+                List<ImageFile> imageFiles = this.parseImageFiles(newDirectory, context, null);
+                synchronized (this) {
+                    if (!context.isCancelled()) {
+                        this.resetSelectedDirectory(newDirectory, imageFiles);
+                    }
                 }
+            } else {
+
+                // Publish the parsed files in small batches into the list of available image files, so that the
+                // views can already display the first images while the rest of the directory is still being parsed
+                Platform.runLater(() -> {
+                    if (!context.isCancelled()) {
+                        this.resetSelectedDirectory(newDirectory, Collections.emptyList());
+                    }
+                });
+                this.parseImageFiles(newDirectory, context, imageFilesBatch -> Platform.runLater(() -> {
+                    if (!context.isCancelled()) {
+                        this.availableImageFiles.addAll(imageFilesBatch);
+                    }
+                }));
+
             }
-        });
+        }, JobClass.LOAD);
         if (waitUntilCompleted) {
             try {
                 future.get();
@@ -107,6 +164,127 @@ public class Selection {
         }
     }
 
+    private void resetSelectedDirectory(File newDirectory, List<ImageFile> newImageFiles) {
+        this.primaryImageFile.setValue(null);
+        this.selectedDirectory.setValue(newDirectory);
+        this.selectedImageFiles.clear();
+        this.dirtyImageFiles.clear();
+        this.availableImageFiles.setAll(newImageFiles);
+    }
+
+    private void updateDirectoryWatcher(File directory) {
+        this.getDirectoryWatcher().watchDirectory(directory != null && this.getDirectoryWatchEnabled().get() ? directory.toPath() : null);
+    }
+
+    /**
+     * Merges the changes made on disk into the available image files
+     *
+     * @param changedPaths
+     *     the paths within the directory that have been created, modified or deleted, {@code null} if the complete
+     *     directory needs to be checked
+     * @return
+     *     {@code false} if the changes cannot be merged right now because the directory is still being loaded or files
+     *     are still being saved, otherwise {@code true}
+     */
+    private boolean refreshImageFiles(Path directory, Set<Path> changedPaths) {
+        if (this.getJobExecutor().isActive(JobClass.LOAD) || this.getJobExecutor().isActive(JobClass.SAVE)) {
+            return false;
+        } else {
+
+            // Everything that requires access to the file system is done here, so that the FX application thread
+            // only needs to apply the changes to the available image files
+            SelectionDirectoryScanner directoryScanner = new SelectionDirectoryScanner(this.getImageFileParser());
+            Map<File, BasicFileAttributes> candidateFiles = new LinkedHashMap<>();
+            Set<File> removedFiles = new HashSet<>();
+            if (changedPaths == null) {
+                Set<File> availableOsFiles = this.lookupAvailableOsFiles();
+                try {
+                    candidateFiles.putAll(directoryScanner.scanDirectory(directory.toFile()));
+                    removedFiles.addAll(availableOsFiles);
+                    removedFiles.removeAll(candidateFiles.keySet());
+                } catch (IOException e) {
+                    log.debug("Cannot scan changed directory: {}", directory, e);
+                    availableOsFiles.stream().filter(osFile -> !osFile.exists()).forEach(removedFiles::add);
+                }
+            } else {
+                for (Path changedPath : changedPaths) {
+                    BasicFileAttributes changedFileAttributes = directoryScanner.readImageFileAttributes(changedPath.toFile());
+                    if (changedFileAttributes != null) {
+                        candidateFiles.put(changedPath.toFile(), changedFileAttributes);
+                    } else if (!changedPath.toFile().exists()) {
+                        removedFiles.add(changedPath.toFile());
+                    }
+                }
+            }
+            Map<File, CompletableFuture<ImageFile>> reloadFutures = new LinkedHashMap<>();
+            candidateFiles.forEach((candidateFile, candidateFileAttributes) -> reloadFutures.put(candidateFile, CompletableFuture.supplyAsync(() -> {
+                try {
+                    return this.getImageFileParser().parseFile(candidateFile, candidateFileAttributes);
+                } catch (IOException e) {
+                    log.debug("Cannot reload changed image file at: {}", candidateFile.getAbsolutePath(), e);
+                    return null;
+                }
+            }, this.getParserExecutor())));
+            Map<File, ImageFile> reloadedImageFiles = new LinkedHashMap<>();
+            reloadFutures.forEach((file, reloadFuture) -> {
+                ImageFile reloadedImageFile = reloadFuture.join();
+                if (reloadedImageFile != null) {
+                    reloadedImageFiles.put(file, reloadedImageFile);
+                }
+            });
+            log.debug("Merging changes from directory: {} [changed={}, reloaded={}, removed={}]", directory, changedPaths == null ? "all" : changedPaths.size(), reloadedImageFiles.size(), removedFiles.size());
+
+            Platform.runLater(() -> this.mergeImageFiles(directory.toFile(), removedFiles, reloadedImageFiles));
+            return true;
+
+        }
+    }
+
+    /**
+     * Collects the files of all available image files. The list of available image files is owned by the FX
+     * application thread, so the files are collected there while the calling thread waits for the result.
+     */
+    private Set<File> lookupAvailableOsFiles() {
+        CompletableFuture<Set<File>> osFilesFuture = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            Set<File> osFiles = new HashSet<>();
+            this.getAvailableImageFiles().forEach(imageFile -> osFiles.add(imageFile.getOsFile()));
+            osFilesFuture.complete(osFiles);
+        });
+        return osFilesFuture.join();
+    }
+
+    private void mergeImageFiles(File directory, Set<File> removedFiles, Map<File, ImageFile> reloadedImageFiles) {
+        if (directory.equals(this.getSelectedDirectory().getValue())) {
+
+            List<ImageFile> removedImageFiles = removedFiles.isEmpty() ? Collections.emptyList() : this.getAvailableImageFiles().stream()
+                .filter(imageFile -> removedFiles.contains(imageFile.getOsFile()))
+                .toList();
+            if (!removedImageFiles.isEmpty()) {
+                if (removedImageFiles.contains(this.getPrimaryImageFile().getValue())) {
+                    this.primaryImageFile.setValue(null);
+                }
+                this.getSelectedImageFiles().removeAll(removedImageFiles);
+                this.getAvailableImageFiles().removeAll(removedImageFiles);
+            }
+
+            // Files that are already known keep their instance, so that the selection as well as all changes that
+            // haven't been saved yet remain intact
+            Map<File, ImageFile> existingImageFiles = new HashMap<>();
+            this.getAvailableImageFiles().forEach(imageFile -> existingImageFiles.put(imageFile.getOsFile(), imageFile));
+            for (Map.Entry<File, ImageFile> reloadedImageFile : reloadedImageFiles.entrySet()) {
+                ImageFile existingImageFile = existingImageFiles.get(reloadedImageFile.getKey());
+                if (existingImageFile != null) {
+                    existingImageFile.updateOriginalValues(reloadedImageFile.getValue());
+                } else {
+                    int searchIndex = Collections.binarySearch(this.getAvailableImageFiles(), reloadedImageFile.getValue(), IMAGE_FILE_COMPARATOR);
+                    this.getAvailableImageFiles().add(searchIndex < 0 ? -searchIndex - 1 : searchIndex + 1, reloadedImageFile.getValue());
+                }
+            }
+
+        }
+    }
+
     public void updatePrimaryImageFile(ImageFile newPrimaryImageFile) {
         if (this.availableImageFiles.contains(newPrimaryImageFile)) {
             this.primaryImageFile.setValue(newPrimaryImageFile);
@@ -115,55 +293,221 @@ public class Selection {
         }
     }
 
-    public void saveDirtyFiles() {
+    /**
+     * Writes all dirty files back to the file system. The files are written in parallel, all state changes of the
+     * written files are applied in one batch on the FX application thread once all files have been processed.
+     *
+     * @return
+     *     a future which will be completed with the outcome for every file once the save has been completed
+     */
+    public CompletableFuture<SelectionSaveResult> saveDirtyFiles() {
         List<ImageFile> dirtyImageFiles = new ArrayList<>(this.getDirtyImageFiles());
-        if (!dirtyImageFiles.isEmpty()) {
+        CompletableFuture<SelectionSaveResult> resultFuture = new CompletableFuture<>();
+        if (dirtyImageFiles.isEmpty()) {
+            resultFuture.complete(new SelectionSaveResult(Collections.emptyList(), Collections.emptyMap(), Collections.emptyList()));
+        } else {
             this.getJobExecutor().executeJob(jobContext -> {
-                synchronized (this) {
-                    log.info("Saving {} dirty files", dirtyImageFiles.size());
-                    jobContext.updateProgress("Saving " + dirtyImageFiles.size() + " dity files", 0, dirtyImageFiles.size());
-                    for (int i=0; i < dirtyImageFiles.size() && !jobContext.isCancelled(); i++) {
-                        ImageFile dirtyFile = dirtyImageFiles.get(i);
-                        jobContext.updateProgress("Saving dirty file: " + dirtyFile.getFileName().getOriginalValue().getValue(), i + 1, dirtyImageFiles.size());
-                        try {
-                            dirtyFile.updateOsFile();
-                        } catch (Exception e) {
-                            log.error("Cannot save dirty file: " + dirtyFile.getFileName().getOriginalValue().getValue(), e);
-                        }
-                    }
+                try {
+                    resultFuture.complete(this.saveImageFiles(dirtyImageFiles, jobContext));
+                } catch (RuntimeException | Error e) {
+                    resultFuture.completeExceptionally(e);
+                    throw e;
                 }
-            });
+            }, JobClass.SAVE);
         }
+        return resultFuture;
     }
 
-    private List<ImageFile> parseImageFiles(File directory, JobContext jobContext) {
+    private SelectionSaveResult saveImageFiles(List<ImageFile> imageFiles, JobContext jobContext) {
+
+        log.info("Saving {} dirty files", imageFiles.size());
+        jobContext.updateProgress("Saving " + imageFiles.size() + " dirty files", 0, imageFiles.size());
 
-        List<File> potentialImageFiles = Arrays.stream(directory.listFiles())
-            .filter(file -> file.isFile())
-            .filter(file -> !file.isHidden())
-            .filter(file -> this.getImageFileParser().isPotentialImageFile(file))
-            .sorted((f1, f2) -> f1.getName().compareToIgnoreCase(f2.getName()))
+        // All renames are executed together up front, so that files swapping their names or renames that collide
+        // with each other are detected before the first file is touched
+        Map<Path, Path> renames = new LinkedHashMap<>();
+        for (ImageFile imageFile : imageFiles) {
+            renames.put(imageFile.getOsFile().toPath(), imageFile.getNewOsFile().toPath());
+        }
+        boolean renamesExecuted = !jobContext.isCancelled();
+        Map<Path, IOException> failedRenames = renamesExecuted ? this.getRenameJournal().execute(RenamePlan.create(renames), this.getSaveExecutor()) : Collections.emptyMap();
+
+        AtomicInteger processedFilesCounter = new AtomicInteger();
+        Queue<Runnable> stateResets = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<SaveOutcome>> saveFutures = imageFiles.stream()
+            .map(imageFile -> CompletableFuture.supplyAsync(() -> this.saveImageFile(imageFile, renamesExecuted, failedRenames, stateResets, processedFilesCounter, imageFiles.size(), jobContext), this.getSaveExecutor()))
             .toList();
+        CompletableFuture.allOf(saveFutures.toArray(CompletableFuture[]::new)).join();
+
+        if (!stateResets.isEmpty()) {
+            Platform.runLater(() -> stateResets.forEach(Runnable::run));
+        }
+
+        List<ImageFile> savedImageFiles = new ArrayList<>();
+        Map<ImageFile, Exception> failedImageFiles = new LinkedHashMap<>();
+        List<ImageFile> skippedImageFiles = new ArrayList<>();
+        for (int i=0; i < imageFiles.size(); i++) {
+            SaveOutcome saveOutcome = saveFutures.get(i).join();
+            if (saveOutcome.exception != null) {
+                failedImageFiles.put(imageFiles.get(i), saveOutcome.exception);
+            } else if (saveOutcome.written) {
+                savedImageFiles.add(imageFiles.get(i));
+            } else {
+                skippedImageFiles.add(imageFiles.get(i));
+            }
+        }
+        SelectionSaveResult saveResult = new SelectionSaveResult(savedImageFiles, failedImageFiles, skippedImageFiles);
+        log.info("Saved dirty files: {}", saveResult);
+        return saveResult;
+
+    }
+
+    private SaveOutcome saveImageFile(ImageFile imageFile, boolean renamesExecuted, Map<Path, IOException> failedRenames, Queue<Runnable> stateResets, AtomicInteger processedFilesCounter, int totalFiles, JobContext jobContext) {
+        File newOsFile = imageFile.getNewOsFile();
+        boolean renameRequired = !newOsFile.equals(imageFile.getOsFile());
+        IOException renameException = failedRenames.get(imageFile.getOsFile().toPath().toAbsolutePath().normalize());
+        if (jobContext.isCancelled() && !(renameRequired && renamesExecuted)) {
+            return new SaveOutcome(false, null);
+        } else {
+            try {
+                if (renameException != null) {
+                    throw renameException;
+                }
+                return new SaveOutcome(imageFile.updateOsFile(newOsFile, stateResets::add), null);
+            } catch (Exception e) {
+                log.error("Cannot save dirty file: " + imageFile.getOsFile(), e);
+                return new SaveOutcome(false, e);
+            } finally {
+                jobContext.updateProgress("Saving dirty file: " + imageFile.getOsFile().getName(), processedFilesCounter.incrementAndGet(), totalFiles);
+            }
+        }
+    }
+
+    private List<ImageFile> parseImageFiles(File directory, JobContext jobContext, Consumer<List<ImageFile>> imageFilesBatchConsumer) {
+
+        Map<File, BasicFileAttributes> potentialImageFileAttributes = this.scanDirectory(directory);
+        List<File> potentialImageFiles = List.copyOf(potentialImageFileAttributes.keySet());
 
         if (potentialImageFiles.isEmpty()) {
             return Collections.emptyList();
         } else {
-            jobContext.updateProgress("Processed " + potentialImageFiles.size() + " image files", 0, potentialImageFiles.size());
+
+            // The files are handed over to the parser executor so that the expensive metadata extraction is spread
+            // across multiple threads. We keep the futures in the original (sorted) order, so that the result list
+            // reflects the order of the files within the directory, no matter in which order the parsers complete.
+            // Only a limited window of files is submitted ahead of the one we're waiting for, as the executor would
+            // otherwise run the overflowing tasks on this thread, which would then parse the whole directory before
+            // the first batch could be published.
+            jobContext.updateProgress("Processing " + potentialImageFiles.size() + " image files", 0, potentialImageFiles.size());
+            AtomicInteger processedFilesCounter = new AtomicInteger();
+            Queue<CompletableFuture<ImageFile>> imageFileFutures = new ArrayDeque<>(PARSER_WINDOW_SIZE);
+            int nextSubmittedFileIndex = 0;
+
             List<ImageFile> imageFiles = new ArrayList<>(potentialImageFiles.size());
+            ImageFileBatchPublisher imageFileBatchPublisher = imageFilesBatchConsumer == null ? null : new ImageFileBatchPublisher(imageFilesBatchConsumer);
             for (int i=0; i < potentialImageFiles.size() && !jobContext.isCancelled(); i++) {
-                File potentialImageFile = potentialImageFiles.get(i);
-                jobContext.updateProgress("Processing image file: " + potentialImageFile.getName(), i, potentialImageFiles.size());
+                for (; nextSubmittedFileIndex < potentialImageFiles.size() && nextSubmittedFileIndex < i + PARSER_WINDOW_SIZE; nextSubmittedFileIndex++) {
+                    File potentialImageFile = potentialImageFiles.get(nextSubmittedFileIndex);
+                    imageFileFutures.add(CompletableFuture.supplyAsync(() -> this.parseImageFile(potentialImageFile, potentialImageFileAttributes.get(potentialImageFile), processedFilesCounter, potentialImageFiles.size(), jobContext), this.getParserExecutor()));
+                }
                 try {
-                    ImageFile imageFile = this.getImageFileParser().parseFile(potentialImageFile);
+                    ImageFile imageFile = imageFileFutures.poll().get();
                     if (imageFile != null) {
                         imageFiles.add(imageFile);
+                        if (imageFileBatchPublisher != null) {
+                            imageFileBatchPublisher.add(imageFile);
+                        }
                     }
-                } catch (IOException e) {
-                    log.warn("Cannot process image file at: " + potentialImageFile.getAbsolutePath(), e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    log.warn("Cannot process image file at: " + potentialImageFiles.get(i).getAbsolutePath(), e.getCause());
                 }
             }
+            if (imageFileBatchPublisher != null && !jobContext.isCancelled()) {
+                imageFileBatchPublisher.publish();
+            }
             jobContext.updateProgress("Analyzed " + imageFiles.size() + " image files", potentialImageFiles.size(), potentialImageFiles.size());
             return imageFiles;
+
+        }
+
+    }
+
+    private Map<File, BasicFileAttributes> scanDirectory(File directory) {
+        try {
+            return new SelectionDirectoryScanner(this.getImageFileParser()).scanDirectory(directory);
+        } catch (IOException e) {
+            log.warn("Cannot scan directory at: " + directory.getAbsolutePath(), e);
+            return Collections.emptyMap();
+        }
+    }
+
+    private ImageFile parseImageFile(File potentialImageFile, BasicFileAttributes potentialImageFileAttributes, AtomicInteger processedFilesCounter, int totalFiles, JobContext jobContext) {
+        if (jobContext.isCancelled()) {
+            return null;
+        } else {
+            try {
+                return this.getImageFileParser().parseFile(potentialImageFile, potentialImageFileAttributes);
+            } catch (IOException e) {
+                log.warn("Cannot process image file at: " + potentialImageFile.getAbsolutePath(), e);
+                return null;
+            } finally {
+                jobContext.updateProgress("Processed image file: " + potentialImageFile.getName(), processedFilesCounter.incrementAndGet(), totalFiles);
+            }
+        }
+    }
+
+    private static class ImageFileBatchPublisher {
+
+        private static final int MAX_BATCH_SIZE = 100;
+        private static final long MAX_BATCH_DELAY = 50;
+
+        private Consumer<List<ImageFile>> consumer = null;
+        private List<ImageFile> pendingImageFiles = null;
+        private long lastPublishTime = 0;
+
+        ImageFileBatchPublisher(Consumer<List<ImageFile>> consumer) {
+            this.setConsumer(consumer);
+            this.setPendingImageFiles(new ArrayList<>(MAX_BATCH_SIZE));
+            this.setLastPublishTime(System.currentTimeMillis());
+        }
+
+        void add(ImageFile imageFile) {
+            this.getPendingImageFiles().add(imageFile);
+            if (this.getPendingImageFiles().size() >= MAX_BATCH_SIZE || System.currentTimeMillis() - this.getLastPublishTime() >= MAX_BATCH_DELAY) {
+                this.publish();
+            }
+        }
+
+        void publish() {
+            if (!this.getPendingImageFiles().isEmpty()) {
+                this.getConsumer().accept(List.copyOf(this.getPendingImageFiles()));
+                this.getPendingImageFiles().clear();
+            }
+            this.setLastPublishTime(System.currentTimeMillis());
+        }
+
+        private Consumer<List<ImageFile>> getConsumer() {
+            return this.consumer;
+        }
+        private void setConsumer(Consumer<List<ImageFile>> consumer) {
+            this.consumer = consumer;
+        }
+
+        private List<ImageFile> getPendingImageFiles() {
+            return this.pendingImageFiles;
+        }
+        private void setPendingImageFiles(List<ImageFile> pendingImageFiles) {
+            this.pendingImageFiles = pendingImageFiles;
+        }
+
+        private long getLastPublishTime() {
+            return this.lastPublishTime;
+        }
+        private void setLastPublishTime(long lastPublishTime) {
+            this.lastPublishTime = lastPublishTime;
         }
 
     }
@@ -217,6 +561,27 @@ public class Selection {
         this.dirtyImageFiles = dirtyImageFiles;
     }
 
+    private Executor getParserExecutor() {
+        return this.parserExecutor;
+    }
+    private void setParserExecutor(Executor parserExecutor) {
+        this.parserExecutor = parserExecutor;
+    }
+
+    private Executor getSaveExecutor() {
+        return this.saveExecutor;
+    }
+    private void setSaveExecutor(Executor saveExecutor) {
+        this.saveExecutor = saveExecutor;
+    }
+
+    private RenameJournal getRenameJournal() {
+        return this.renameJournal;
+    }
+    private void setRenameJournal(RenameJournal renameJournal) {
+        this.renameJournal = renameJournal;
+    }
+
     private JobExecutor getJobExecutor() {
         return this.jobExecutor;
     }
@@ -224,6 +589,24 @@ public class Selection {
         this.jobExecutor = jobExecutor;
     }
 
+    /**
+     * Gets the flag whether changes within the selected directory made outside of the application should be merged
+     * into the available image files automatically
+     */
+    public BooleanProperty getDirectoryWatchEnabled() {
+        return this.directoryWatchEnabled;
+    }
+    private void setDirectoryWatchEnabled(BooleanProperty directoryWatchEnabled) {
+        this.directoryWatchEnabled = directoryWatchEnabled;
+    }
+
+    private SelectionDirectoryWatcher getDirectoryWatcher() {
+        return this.directoryWatcher;
+    }
+    private void setDirectoryWatcher(SelectionDirectoryWatcher directoryWatcher) {
+        this.directoryWatcher = directoryWatcher;
+    }
+
     ImageFileParser getImageFileParser() {
         return this.imageFileParser;
     }
@@ -231,4 +614,16 @@ public class Selection {
         this.imageFileParser = imageFileParser;
     }
 
+    private static class SaveOutcome {
+
+        private boolean written = false;
+        private Exception exception = null;
+
+        SaveOutcome(boolean written, Exception exception) {
+            this.written = written;
+            this.exception = exception;
+        }
+
+    }
+
 }
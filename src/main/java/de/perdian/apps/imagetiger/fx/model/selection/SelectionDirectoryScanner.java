@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.model.selection;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.perdian.apps.imagetiger.model.ImageFileParser;
+
+/**
+ * Finds the image files within a directory. Every entry of the directory is checked using a single read of its
+ * attributes, which are kept so that the parser doesn't have to access the file system again.
+ *
+ * @author Christian Seifert
+ */
+
+class SelectionDirectoryScanner {
+
+    private static final Logger log = LoggerFactory.getLogger(SelectionDirectoryScanner.class);
+
+    /**
+     * The order in which image files are listed. Names only differing in case are different files on case sensitive
+     * file systems, so both must be kept in a well defined order
+     */
+    static final Comparator<File> FILE_NAME_COMPARATOR = (f1, f2) -> {
+        int nameComparison = f1.getName().compareToIgnoreCase(f2.getName());
+        return nameComparison != 0 ? nameComparison : f1.getName().compareTo(f2.getName());
+    };
+
+    private ImageFileParser imageFileParser = null;
+
+    SelectionDirectoryScanner(ImageFileParser imageFileParser) {
+        this.setImageFileParser(imageFileParser);
+    }
+
+    /**
+     * Lists all potential image files within the given directory
+     *
+     * @return
+     *     the image files together with their attributes, sorted by their file names
+     */
+    Map<File, BasicFileAttributes> scanDirectory(File directory) throws IOException {
+        List<Map.Entry<File, BasicFileAttributes>> imageFileEntries = new ArrayList<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory.toPath())) {
+            for (Path path : directoryStream) {
+                BasicFileAttributes fileAttributes = this.readImageFileAttributes(path.toFile());
+                if (fileAttributes != null) {
+                    imageFileEntries.add(Map.entry(path.toFile(), fileAttributes));
+                }
+            }
+        }
+
+        imageFileEntries.sort(Map.Entry.comparingByKey(FILE_NAME_COMPARATOR));
+        Map<File, BasicFileAttributes> imageFiles = new LinkedHashMap<>();
+        imageFileEntries.forEach(imageFileEntry -> imageFiles.put(imageFileEntry.getKey(), imageFileEntry.getValue()));
+        return imageFiles;
+    }
+
+    /**
+     * Reads the attributes of the given file
+     *
+     * @return
+     *     the attributes or {@code null} if the file doesn't exist or isn't a potential image file
+     */
+    BasicFileAttributes readImageFileAttributes(File file) {
+        if (file.getName().startsWith(".") || !this.getImageFileParser().isPotentialImageFile(file)) {
+            return null;
+        } else {
+            try {
+
+                // On Windows the attributes returned are DOS attributes, which already contain the hidden flag, so
+                // that we don't need another call to find out whether a file is hidden
+                BasicFileAttributes fileAttributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                if (!fileAttributes.isRegularFile() || (fileAttributes instanceof DosFileAttributes dosFileAttributes && dosFileAttributes.isHidden())) {
+                    return null;
+                } else {
+                    return fileAttributes;
+                }
+
+            } catch (NoSuchFileException e) {
+                return null;
+            } catch (IOException e) {
+                log.debug("Cannot read attributes of file at: {}", file.getAbsolutePath(), e);
+                return null;
+            }
+        }
+    }
+
+    private ImageFileParser getImageFileParser() {
+        return this.imageFileParser;
+    }
+    private void setImageFileParser(ImageFileParser imageFileParser) {
+        this.imageFileParser = imageFileParser;
+    }
+
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.model.selection;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the currently selected directory for files being created, modified or deleted. All events are collected and
+ * only handed over to the consumer after no further events have been received for a short period of time, so that
+ * copying a whole set of files into the directory results in a single update.
+ *
+ * @author Christian Seifert
+ */
+
+class SelectionDirectoryWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(SelectionDirectoryWatcher.class);
+
+    private long debounceMillis = 0;
+    private long maxDelayMillis = 0;
+    private BiPredicate<Path, Set<Path>> changesConsumer = null;
+    private ScheduledExecutorService scheduler = null;
+    private WatchService watchService = null;
+    private Path directory = null;
+    private Set<Path> pendingPaths = null;
+    private boolean pendingOverflow = false;
+    private long pendingSince = 0;
+    private ScheduledFuture<?> pendingFlush = null;
+
+    /**
+     * Creates a new watcher
+     *
+     * @param debounceMillis
+     *     the time that has to pass without any further event, before the collected changes are published
+     * @param changesConsumer
+     *     the consumer receiving the watched directory together with the paths that have been changed or {@code null}
+     *     if events have been lost and the whole directory needs to be checked. If the consumer returns {@code false}
+     *     the changes could not be processed right now and will be handed over again later.
+     */
+    SelectionDirectoryWatcher(long debounceMillis, BiPredicate<Path, Set<Path>> changesConsumer) {
+        this.setDebounceMillis(debounceMillis);
+        this.setMaxDelayMillis(debounceMillis * 10);
+        this.setChangesConsumer(changesConsumer);
+        this.setPendingPaths(new HashSet<>());
+        this.setScheduler(Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "imagetiger-directory-watcher-flush");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Starts watching the given directory. A directory that has been watched before will no longer be watched.
+     *
+     * @param directory
+     *     the directory to watch or {@code null} if no directory should be watched at all
+     */
+    synchronized void watchDirectory(Path directory) {
+        if (this.getWatchService() != null) {
+            try {
+                this.getWatchService().close();
+            } catch (IOException e) {
+                log.debug("Cannot close watch service for directory: {}", this.getDirectory(), e);
+            }
+            this.setWatchService(null);
+        }
+        if (this.getPendingFlush() != null) {
+            this.getPendingFlush().cancel(false);
+            this.setPendingFlush(null);
+        }
+        this.getPendingPaths().clear();
+        this.setPendingOverflow(false);
+        this.setDirectory(directory);
+        if (directory != null) {
+            try {
+                WatchService watchService = directory.getFileSystem().newWatchService();
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                Thread watchThread = new Thread(() -> this.processEvents(watchService, directory), "imagetiger-directory-watcher");
+                watchThread.setDaemon(true);
+                watchThread.start();
+                this.setWatchService(watchService);
+                log.debug("Watching directory for changes: {}", directory);
+            } catch (IOException | UnsupportedOperationException e) {
+                log.warn("Cannot watch directory for changes: {}", directory, e);
+            }
+        }
+    }
+
+    private void processEvents(WatchService watchService, Path directory) {
+        try {
+            while (true) {
+                WatchKey watchKey = watchService.take();
+                Set<Path> changedPaths = new HashSet<>();
+                boolean overflow = false;
+                for (WatchEvent<?> watchEvent : watchKey.pollEvents()) {
+                    if (watchEvent.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        overflow = true;
+                    } else {
+                        changedPaths.add(directory.resolve((Path)watchEvent.context()));
+                    }
+                }
+                this.addPendingChanges(watchService, changedPaths, overflow);
+                if (!watchKey.reset()) {
+                    log.debug("Directory is no longer accessible, stop watching: {}", directory);
+                    break;
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            log.trace("Watch service closed for directory: {}", directory);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void addPendingChanges(WatchService watchService, Set<Path> changedPaths, boolean overflow) {
+        if (watchService == this.getWatchService()) {
+            long now = System.currentTimeMillis();
+            if (this.getPendingPaths().isEmpty() && !this.isPendingOverflow()) {
+                this.setPendingSince(now);
+            }
+            this.getPendingPaths().addAll(changedPaths);
+            this.setPendingOverflow(this.isPendingOverflow() || overflow);
+            if (this.getPendingFlush() != null) {
+                this.getPendingFlush().cancel(false);
+            }
+            long flushDelay = Math.max(0, Math.min(this.getDebounceMillis(), this.getPendingSince() + this.getMaxDelayMillis() - now));
+            this.setPendingFlush(this.getScheduler().schedule(() -> this.flushPendingChanges(watchService), flushDelay, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void flushPendingChanges(WatchService watchService) {
+        Path directory = null;
+        Set<Path> changedPaths = null;
+        synchronized (this) {
+            if (watchService != this.getWatchService() || (this.getPendingPaths().isEmpty() && !this.isPendingOverflow())) {
+                return;
+            }
+            directory = this.getDirectory();
+            changedPaths = this.isPendingOverflow() ? null : Set.copyOf(this.getPendingPaths());
+            this.getPendingPaths().clear();
+            this.setPendingOverflow(false);
+            this.setPendingFlush(null);
+        }
+        boolean changesProcessed = false;
+        try {
+            changesProcessed = this.getChangesConsumer().test(directory, changedPaths);
+        } catch (Exception e) {
+            log.warn("Cannot process changes in directory: {}", directory, e);
+            changesProcessed = true;
+        }
+        if (!changesProcessed) {
+            this.addPendingChanges(watchService, changedPaths == null ? Set.of() : changedPaths, changedPaths == null);
+        }
+    }
+
+    private long getDebounceMillis() {
+        return this.debounceMillis;
+    }
+    private void setDebounceMillis(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+
+    private long getMaxDelayMillis() {
+        return this.maxDelayMillis;
+    }
+    private void setMaxDelayMillis(long maxDelayMillis) {
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    private BiPredicate<Path, Set<Path>> getChangesConsumer() {
+        return this.changesConsumer;
+    }
+    private void setChangesConsumer(BiPredicate<Path, Set<Path>> changesConsumer) {
+        this.changesConsumer = changesConsumer;
+    }
+
+    private ScheduledExecutorService getScheduler() {
+        return this.scheduler;
+    }
+    private void setScheduler(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    private WatchService getWatchService() {
+        return this.watchService;
+    }
+    private void setWatchService(WatchService watchService) {
+        this.watchService = watchService;
+    }
+
+    private Path getDirectory() {
+        return this.directory;
+    }
+    private void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    private Set<Path> getPendingPaths() {
+        return this.pendingPaths;
+    }
+    private void setPendingPaths(Set<Path> pendingPaths) {
+        this.pendingPaths = pendingPaths;
+    }
+
+    private boolean isPendingOverflow() {
+        return this.pendingOverflow;
+    }
+    private void setPendingOverflow(boolean pendingOverflow) {
+        this.pendingOverflow = pendingOverflow;
+    }
+
+    private long getPendingSince() {
+        return this.pendingSince;
+    }
+    private void setPendingSince(long pendingSince) {
+        this.pendingSince = pendingSince;
+    }
+
+    private ScheduledFuture<?> getPendingFlush() {
+        return this.pendingFlush;
+    }
+    private void setPendingFlush(ScheduledFuture<?> pendingFlush) {
+        this.pendingFlush = pendingFlush;
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.model.selection;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import de.perdian.apps.imagetiger.model.ImageFile;
+
+/**
+ * The result of saving the dirty files of a {@link Selection}
+ *
+ * @author Christian Seifert
+ */
+
+public class SelectionSaveResult {
+
+    private List<ImageFile> savedImageFiles = null;
+    private Map<ImageFile, Exception> failedImageFiles = null;
+    private List<ImageFile> skippedImageFiles = null;
+
+    SelectionSaveResult(List<ImageFile> savedImageFiles, Map<ImageFile, Exception> failedImageFiles, List<ImageFile> skippedImageFiles) {
+        this.setSavedImageFiles(Collections.unmodifiableList(savedImageFiles));
+        this.setFailedImageFiles(Collections.unmodifiableMap(failedImageFiles));
+        this.setSkippedImageFiles(Collections.unmodifiableList(skippedImageFiles));
+    }
+
+    @Override
+    public String toString() {
+        return "SelectionSaveResult[saved=" + this.getSavedImageFiles().size() + ", failed=" + this.getFailedImageFiles().size() + ", skipped=" + this.getSkippedImageFiles().size() + "]";
+    }
+
+    /**
+     * Gets the files that have been written successfully
+     */
+    public List<ImageFile> getSavedImageFiles() {
+        return this.savedImageFiles;
+    }
+    private void setSavedImageFiles(List<ImageFile> savedImageFiles) {
+        this.savedImageFiles = savedImageFiles;
+    }
+
+    /**
+     * Gets the files that could not be written together with the error that occured while writing them
+     */
+    public Map<ImageFile, Exception> getFailedImageFiles() {
+        return this.failedImageFiles;
+    }
+    private void setFailedImageFiles(Map<ImageFile, Exception> failedImageFiles) {
+        this.failedImageFiles = failedImageFiles;
+    }
+
+    /**
+     * Gets the files that haven't been written, either because the save has been cancelled or because there was
+     * nothing to write any more
+     */
+    public List<ImageFile> getSkippedImageFiles() {
+        return this.skippedImageFiles;
+    }
+    private void setSkippedImageFiles(List<ImageFile> skippedImageFiles) {
+        this.skippedImageFiles = skippedImageFiles;
+    }
+
+}
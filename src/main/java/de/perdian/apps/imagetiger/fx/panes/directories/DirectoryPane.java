@@ -37,7 +37,11 @@ public class DirectoryPane extends GridPane {
         DirectoryTreeView pathTreeView = new DirectoryTreeView();
         pathTreeView.setFocusTraversable(false);
         pathTreeView.selectDirectory(new File(System.getProperty("user.home")));
-        pathTreeView.getSelectionModel().selectedItemProperty().addListener((o, oldValue, newValue) -> this.selectedDirectoryProperty().setValue(newValue == null ? null : newValue.getValue()));
+        pathTreeView.getSelectionModel().selectedItemProperty().addListener((o, oldValue, newValue) -> {
+            if (newValue == null || newValue.getValue() != null) {
+                this.selectedDirectoryProperty().setValue(newValue == null ? null : newValue.getValue());
+            }
+        });
         GridPane.setHgrow(pathTreeView, Priority.ALWAYS);
         GridPane.setVgrow(pathTreeView, Priority.ALWAYS);
 
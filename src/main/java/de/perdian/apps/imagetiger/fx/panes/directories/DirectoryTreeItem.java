@@ -17,34 +17,73 @@ package de.perdian.apps.imagetiger.fx.panes.directories;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 import org.kordamp.ikonli.javafx.FontIcon;
+import org.kordamp.ikonli.materialdesign2.MaterialDesignD;
 import org.kordamp.ikonli.materialdesign2.MaterialDesignF;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javafx.application.Platform;
 import javafx.scene.control.TreeItem;
 
+/**
+ * Tree item representing a single directory. The children of a directory are loaded in the background the first time
+ * the item gets expanded. Until the children are available a placeholder child is displayed.
+ *
+ * @author Christian Seifert
+ */
+
 class DirectoryTreeItem extends TreeItem<File> {
 
     private static final Logger log = LoggerFactory.getLogger(DirectoryTreeItem.class);
+    private static final ExecutorService LOADER_EXECUTOR = DirectoryTreeItem.createLoaderExecutor();
 
     private boolean childrenLoaded = false;
+    private int loadGeneration = 0;
+    private Future<?> loadFuture = null;
 
     DirectoryTreeItem(File directory) {
         this.setGraphic(new FontIcon(MaterialDesignF.FOLDER));
         this.setValue(directory);
         this.addEventHandler(TreeItem.branchExpandedEvent(), event -> this.setGraphic(new FontIcon(MaterialDesignF.FOLDER_OPEN)));
         this.addEventHandler(TreeItem.branchCollapsedEvent(), event -> this.setGraphic(new FontIcon(MaterialDesignF.FOLDER)));
-        this.addEventHandler(TreeItem.branchExpandedEvent(), event -> this.loadChildren(2));
+        this.addEventHandler(TreeItem.<File>branchExpandedEvent(), event -> {
+            if (event.getTreeItem() == this) {
+                this.loadChildrenAsync();
+            }
+        });
+        this.addEventHandler(TreeItem.<File>branchCollapsedEvent(), event -> {
+            if (event.getTreeItem() == this) {
+                this.cancelLoadChildren();
+            }
+        });
+        if (directory != null) {
+            this.getChildren().setAll(List.of(DirectoryTreeItem.createPlaceholderItem()));
+        }
+    }
+
+    private DirectoryTreeItem(File directory, boolean hasChildDirectories) {
+        this(directory);
+        if (!hasChildDirectories) {
+            this.getChildren().clear();
+            this.setChildrenLoaded(true);
+        }
     }
 
     @Override
@@ -52,6 +91,19 @@ class DirectoryTreeItem extends TreeItem<File> {
         return this.getValue().getName();
     }
 
+    private static ExecutorService createLoaderExecutor() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "imagetiger-directory-loader-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static TreeItem<File> createPlaceholderItem() {
+        return new TreeItem<>(null, new FontIcon(MaterialDesignD.DOTS_HORIZONTAL));
+    }
+
     public static DirectoryTreeItem createRootTreeItem() {
         DirectoryTreeItem rootItem = new DirectoryTreeItem(null);
         Arrays.stream(File.listRoots()).forEach(rootPath -> rootItem.getChildren().add(DirectoryTreeItem.createRootTreeItem(rootPath)));
@@ -60,66 +112,136 @@ class DirectoryTreeItem extends TreeItem<File> {
 
     private static DirectoryTreeItem createRootTreeItem(File rootDirectory) {
         DirectoryTreeItem rootTreeItem = new DirectoryTreeItem(rootDirectory);
-        rootTreeItem.loadChildren(2);
         rootTreeItem.setExpanded(true);
         return rootTreeItem;
     }
 
-    synchronized void reloadChildren() {
+    void reloadChildren() {
+        this.cancelLoadChildren();
         this.setChildrenLoaded(false);
-        this.loadChildren(2);
-        this.setExpanded(true);
+        this.getChildren().setAll(List.of(DirectoryTreeItem.createPlaceholderItem()));
+        if (this.isExpanded()) {
+            this.loadChildrenAsync();
+        } else {
+            this.setExpanded(true);
+        }
     }
 
-    private synchronized void loadChildren(int depth) {
-        if (this.getValue() != null && depth > 0) {
-            if (!this.isChildrenLoaded()) {
-                log.debug("Loading children for path: {}", this.getValue());
+    private void loadChildrenAsync() {
+        if (this.getValue() != null && !this.isChildrenLoaded() && this.getLoadFuture() == null) {
+            int loadGeneration = ++this.loadGeneration;
+            File directory = this.getValue();
+            log.debug("Loading children for path: {}", directory);
+            this.setLoadFuture(LOADER_EXECUTOR.submit(() -> {
+                BooleanSupplier cancelled = () -> Thread.currentThread().isInterrupted();
                 try {
-                    List<File> childDirectories = this.loadChildrenPaths();
-                    List<DirectoryTreeItem> childItems = new ArrayList<>(childDirectories.size());
-                    for (File childDirectory : childDirectories) {
-                        DirectoryTreeItem childItem = new DirectoryTreeItem(childDirectory);
-                        childItem.loadChildren(depth - 1);
-                        childItems.add(childItem);
+
+                    // Besides the child directories themselves we also check whether each child has children on its
+                    // own, so that the tree only offers to expand directories that actually contain something
+                    Map<File, Boolean> childDirectories = new LinkedHashMap<>();
+                    for (File childDirectory : DirectoryTreeItem.loadChildDirectories(directory, cancelled)) {
+                        childDirectories.put(childDirectory, DirectoryTreeItem.hasChildDirectories(childDirectory, cancelled));
                     }
-                    this.getChildren().setAll(childItems);
-                } catch (IOException e) {
-                    log.warn("Cannot load children of directory: {}", this.getValue());
-                } finally {
-                    this.setChildrenLoaded(true);
+                    if (!cancelled.getAsBoolean()) {
+                        Platform.runLater(() -> {
+                            if (this.loadGeneration == loadGeneration) {
+                                List<DirectoryTreeItem> childItems = new ArrayList<>(childDirectories.size());
+                                childDirectories.forEach((childDirectory, hasChildDirectories) -> childItems.add(new DirectoryTreeItem(childDirectory, hasChildDirectories)));
+                                this.getChildren().setAll(childItems);
+                                this.setChildrenLoaded(true);
+                                this.setLoadFuture(null);
+                            }
+                        });
+                    }
+
+                } catch (IOException | RuntimeException e) {
+
+                    // Errors while iterating over the directory are reported as unchecked exceptions, which would
+                    // otherwise vanish within the future and leave the placeholder in place forever
+                    log.warn("Cannot load children of directory: {}", directory, e);
+                    Platform.runLater(() -> {
+                        if (this.loadGeneration == loadGeneration) {
+                            this.getChildren().clear();
+                            this.setChildrenLoaded(true);
+                            this.setLoadFuture(null);
+                        }
+                    });
                 }
+            }));
+        }
+    }
+
+    private void cancelLoadChildren() {
+        if (this.getLoadFuture() != null) {
+            log.debug("Cancel loading children for path: {}", this.getValue());
+            this.loadGeneration++;
+            this.getLoadFuture().cancel(true);
+            this.setLoadFuture(null);
+        }
+    }
+
+    private void loadChildrenSync() {
+        if (this.getValue() != null && !this.isChildrenLoaded()) {
+            this.cancelLoadChildren();
+            try {
+                List<DirectoryTreeItem> childItems = new ArrayList<>();
+                for (File childDirectory : DirectoryTreeItem.loadChildDirectories(this.getValue(), () -> false)) {
+                    childItems.add(new DirectoryTreeItem(childDirectory));
+                }
+                this.getChildren().setAll(childItems);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Cannot load children of directory: {}", this.getValue(), e);
+                this.getChildren().clear();
+            } finally {
+                this.setChildrenLoaded(true);
             }
-            if (depth > 1 && this.getChildren() != null) {
-                this.getChildren().stream()
-                    .filter(item -> item instanceof DirectoryTreeItem)
-                    .forEach(item -> ((DirectoryTreeItem)item).loadChildren(depth - 1));
-            }
         }
     }
 
-    private List<File> loadChildrenPaths() throws IOException {
-        return Files.walk(this.getValue().toPath(), 1)
-            .parallel()
-            .map(Path::toFile)
-            .filter(file -> file.isDirectory())
-            .filter(file -> !file.isHidden())
-            .filter(file -> !file.getName().startsWith("."))
-            .filter(file -> !Objects.equals(file, this.getValue()))
-            .sorted((p1, p2) -> p1.getName().compareToIgnoreCase(p2.getName()))
-            .collect(Collectors.toList());
+    private static List<File> loadChildDirectories(File directory, BooleanSupplier cancelled) throws IOException {
+        return DirectoryTreeItem.loadChildDirectories(directory, cancelled, Integer.MAX_VALUE);
+    }
+
+    private static boolean hasChildDirectories(File directory, BooleanSupplier cancelled) {
+        try {
+            return !DirectoryTreeItem.loadChildDirectories(directory, cancelled, 1).isEmpty();
+        } catch (IOException e) {
+            log.trace("Cannot check children of directory: {}", directory, e);
+            return false;
+        }
+    }
+
+    private static List<File> loadChildDirectories(File directory, BooleanSupplier cancelled, int maxResults) throws IOException {
+        List<File> childDirectories = new ArrayList<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory.toPath())) {
+            for (Path childPath : directoryStream) {
+                if (cancelled.getAsBoolean() || childDirectories.size() >= maxResults) {
+                    break;
+                } else if (!childPath.getFileName().toString().startsWith(".")) {
+                    try {
+                        BasicFileAttributes childAttributes = Files.readAttributes(childPath, BasicFileAttributes.class);
+                        if (childAttributes.isDirectory() && !Files.isHidden(childPath)) {
+                            childDirectories.add(childPath.toFile());
+                        }
+                    } catch (IOException e) {
+                        log.trace("Cannot read attributes of path: {}", childPath, e);
+                    }
+                }
+            }
+        }
+        childDirectories.sort((f1, f2) -> f1.getName().compareToIgnoreCase(f2.getName()));
+        return childDirectories;
     }
 
-    synchronized DirectoryTreeItem ensureChildrenLoadedUntil(File directory) {
+    DirectoryTreeItem ensureChildrenLoadedUntil(File directory) {
         if (this.getValue().equals(directory)) {
-            this.loadChildren(2);
             return this;
         } else {
             for (File needle = directory; needle != null; needle = needle.getParentFile()) {
                 if (this.getValue().equals(needle.getParentFile())) {
-                    this.loadChildren(2);
+                    this.loadChildrenSync();
                     for (TreeItem<File> childItem : this.getChildren()) {
-                        if (childItem.getValue().equals(needle)) {
+                        if (needle.equals(childItem.getValue())) {
                             return ((DirectoryTreeItem)childItem).ensureChildrenLoadedUntil(directory);
                         }
                     }
@@ -136,6 +258,13 @@ class DirectoryTreeItem extends TreeItem<File> {
         this.childrenLoaded = childrenLoaded;
     }
 
+    private Future<?> getLoadFuture() {
+        return this.loadFuture;
+    }
+    private void setLoadFuture(Future<?> loadFuture) {
+        this.loadFuture = loadFuture;
+    }
+
     List<DirectoryTreeItem> computePathFromRoot() {
         List<DirectoryTreeItem> resultList = new LinkedList<>();
         for (DirectoryTreeItem currentItem = this; currentItem != null; currentItem = (DirectoryTreeItem)currentItem.getParent()) {
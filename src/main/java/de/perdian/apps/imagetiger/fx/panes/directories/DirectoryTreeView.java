@@ -71,7 +71,7 @@ class DirectoryTreeView extends TreeView<File> {
 
         @Override
         public String toString(File file) {
-            return StringUtils.defaultIfEmpty(file.getName(), "/");
+            return file == null ? "Loading..." : StringUtils.defaultIfEmpty(file.getName(), "/");
         }
 
         @Override
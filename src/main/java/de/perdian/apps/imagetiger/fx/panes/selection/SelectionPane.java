@@ -21,6 +21,7 @@ import de.perdian.apps.imagetiger.fx.panes.selection.actions.ActionsPane;
 import de.perdian.apps.imagetiger.fx.panes.selection.data.DataPane;
 import de.perdian.apps.imagetiger.fx.panes.selection.list.ListPane;
 import de.perdian.apps.imagetiger.fx.panes.selection.thumbnails.ThumbnailsPane;
+import de.perdian.apps.imagetiger.fx.support.executors.ImageProcessingExecutor;
 import de.perdian.apps.imagetiger.fx.support.jobs.JobExecutor;
 import javafx.geometry.Insets;
 import javafx.scene.control.TitledPane;
@@ -29,13 +30,13 @@ import javafx.scene.layout.Priority;
 
 public class SelectionPane extends GridPane {
 
-    public SelectionPane(Selection selection, JobExecutor jobExecutor, ImageTigerPreferences preferences) {
+    public SelectionPane(Selection selection, JobExecutor jobExecutor, ImageProcessingExecutor imageProcessingExecutor, ImageTigerPreferences preferences) {
 
         ListPane listPane = new ListPane(selection);
         listPane.disableProperty().bind(selection.getBusy());
         GridPane.setVgrow(listPane, Priority.ALWAYS);
 
-        ThumbnailsPane thumbnailsPane = new ThumbnailsPane(selection, jobExecutor, preferences);
+        ThumbnailsPane thumbnailsPane = new ThumbnailsPane(selection, jobExecutor, imageProcessingExecutor, preferences);
         thumbnailsPane.disableProperty().bind(selection.getBusy());
         TitledPane fileThumbnailsTitledPane = new TitledPane("Thumbnails", thumbnailsPane);
         fileThumbnailsTitledPane.setFocusTraversable(false);
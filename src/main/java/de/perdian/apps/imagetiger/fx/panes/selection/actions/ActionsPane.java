@@ -15,14 +15,20 @@
  */
 package de.perdian.apps.imagetiger.fx.panes.selection.actions;
 
+import java.util.stream.Collectors;
+
 import org.kordamp.ikonli.javafx.FontIcon;
 import org.kordamp.ikonli.materialdesign2.MaterialDesignC;
 
 import de.perdian.apps.imagetiger.fx.model.selection.Selection;
+import de.perdian.apps.imagetiger.fx.model.selection.SelectionSaveResult;
 import de.perdian.apps.imagetiger.model.ImageFile;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.collections.ObservableList;
 import javafx.geometry.Pos;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.FlowPane;
@@ -33,7 +39,7 @@ public class ActionsPane extends BorderPane {
 
         ObservableList<ImageFile> dirtyFiles = selection.getDirtyImageFiles();
         Button saveChangedFilesButton = new Button("Save changed files", new FontIcon(MaterialDesignC.CONTENT_SAVE));
-        saveChangedFilesButton.setOnAction(event -> selection.saveDirtyFiles());
+        saveChangedFilesButton.setOnAction(event -> selection.saveDirtyFiles().thenAccept(saveResult -> Platform.runLater(() -> this.showSaveResult(saveResult))));
         saveChangedFilesButton.disableProperty().bind(Bindings.isEmpty(dirtyFiles));
 
         FlowPane buttonPane = new FlowPane();
@@ -44,4 +50,17 @@ public class ActionsPane extends BorderPane {
 
     }
 
+    private void showSaveResult(SelectionSaveResult saveResult) {
+        if (!saveResult.getFailedImageFiles().isEmpty()) {
+            String failuresText = saveResult.getFailedImageFiles().entrySet().stream()
+                .map(entry -> entry.getKey().getOsFile().getName() + ": " + entry.getValue().getMessage())
+                .collect(Collectors.joining("\n"));
+            Alert alert = new Alert(AlertType.ERROR);
+            alert.setTitle("Save changed files");
+            alert.setHeaderText(saveResult.getFailedImageFiles().size() + " of " + (saveResult.getSavedImageFiles().size() + saveResult.getFailedImageFiles().size() + saveResult.getSkippedImageFiles().size()) + " files could not be saved");
+            alert.setContentText(failuresText);
+            alert.show();
+        }
+    }
+
 }
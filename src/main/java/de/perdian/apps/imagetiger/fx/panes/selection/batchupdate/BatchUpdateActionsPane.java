@@ -25,22 +25,25 @@ import de.perdian.apps.imagetiger.fx.model.batchupdate.BatchUpdateSettings;
 import de.perdian.apps.imagetiger.fx.panes.selection.batchupdate.actions.BatchUpdateComputeActionEventHandler;
 import de.perdian.apps.imagetiger.fx.panes.selection.batchupdate.actions.BatchUpdateResetActionEventHandler;
 import de.perdian.apps.imagetiger.fx.panes.selection.batchupdate.actions.BatchUpdateTransferActionEventHandler;
+import de.perdian.apps.imagetiger.fx.support.executors.ImageProcessingExecutor;
 import de.perdian.apps.imagetiger.fx.support.jobs.JobExecutor;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.value.ObservableBooleanValue;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonBar;
+import javafx.scene.control.CheckBox;
 
 class BatchUpdateActionsPane extends ButtonBar {
 
-    BatchUpdateActionsPane(ObservableList<BatchUpdateItem> allItems, ObservableList<BatchUpdateItem> selectedItems, BatchUpdateSettings settings, JobExecutor jobExecutor, ObjectProperty<EventHandler<ActionEvent>> onTransferProperty) {
+    BatchUpdateActionsPane(ObservableList<BatchUpdateItem> allItems, ObservableList<BatchUpdateItem> selectedItems, BatchUpdateSettings settings, JobExecutor jobExecutor, ImageProcessingExecutor imageProcessingExecutor, ObservableBooleanValue previewBusy, ObjectProperty<EventHandler<ActionEvent>> onTransferProperty) {
 
         Button computeButton = new Button("Compute new properties", new FontIcon(MaterialDesignU.UPDATE));
-        computeButton.setOnAction(new BatchUpdateComputeActionEventHandler(selectedItems, settings, jobExecutor));
-        computeButton.disableProperty().bind(Bindings.or(Bindings.isEmpty(selectedItems), Bindings.or(Bindings.not(settings.getReady()), jobExecutor.getBusy())));
+        computeButton.setOnAction(new BatchUpdateComputeActionEventHandler(selectedItems, settings, jobExecutor, imageProcessingExecutor));
+        computeButton.disableProperty().bind(Bindings.or(Bindings.isEmpty(selectedItems), Bindings.or(Bindings.not(settings.getReady()), Bindings.or(jobExecutor.getBusy(), previewBusy))));
         ButtonBar.setButtonData(computeButton, ButtonData.LEFT);
 
         Button resetButton = new Button("Reset properties", new FontIcon(MaterialDesignR.RELOAD));
@@ -50,9 +53,13 @@ class BatchUpdateActionsPane extends ButtonBar {
 
         Button transferButton = new Button("Update image files", new FontIcon(MaterialDesignE.EXIT_TO_APP));
         transferButton.setOnAction(new BatchUpdateTransferActionEventHandler(allItems, jobExecutor, onTransferProperty));
-        transferButton.disableProperty().bind(Bindings.or(Bindings.isEmpty(allItems), jobExecutor.getBusy()));
+        transferButton.disableProperty().bind(Bindings.or(Bindings.isEmpty(allItems), Bindings.or(jobExecutor.getBusy(), previewBusy)));
 
-        this.getButtons().addAll(computeButton, resetButton, transferButton);
+        CheckBox livePreviewCheckBox = new CheckBox("Live preview");
+        livePreviewCheckBox.selectedProperty().bindBidirectional(settings.getLivePreview());
+        ButtonBar.setButtonData(livePreviewCheckBox, ButtonData.LEFT);
+
+        this.getButtons().addAll(computeButton, livePreviewCheckBox, resetButton, transferButton);
 
     }
 
@@ -18,6 +18,7 @@ package de.perdian.apps.imagetiger.fx.panes.selection.batchupdate;
 import de.perdian.apps.imagetiger.fx.ImageTigerPreferences;
 import de.perdian.apps.imagetiger.fx.model.batchupdate.BatchUpdateSettings;
 import de.perdian.apps.imagetiger.fx.model.selection.Selection;
+import de.perdian.apps.imagetiger.fx.support.executors.ImageProcessingExecutor;
 import de.perdian.apps.imagetiger.fx.support.jobs.JobExecutor;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -26,10 +27,10 @@ import javafx.stage.Window;
 
 public class BatchUpdateDialog extends Dialog<Void> {
 
-    public BatchUpdateDialog(Window parentWindow, Selection selection, JobExecutor jobExecutor, ImageTigerPreferences preferences) {
+    public BatchUpdateDialog(Window parentWindow, Selection selection, JobExecutor jobExecutor, ImageProcessingExecutor imageProcessingExecutor, ImageTigerPreferences preferences) {
 
         BatchUpdateSettings batchUpdateSettings = new BatchUpdateSettings(preferences);
-        BatchUpdateDialogPane batchUpdateDialogPane = new BatchUpdateDialogPane(batchUpdateSettings, selection, jobExecutor);
+        BatchUpdateDialogPane batchUpdateDialogPane = new BatchUpdateDialogPane(batchUpdateSettings, selection, jobExecutor, imageProcessingExecutor);
         batchUpdateDialogPane.setPadding(new Insets(10, 10, 10, 10));
         batchUpdateDialogPane.setOnTransfer(event -> {
             Platform.runLater(() -> {
@@ -40,6 +41,7 @@ public class BatchUpdateDialog extends Dialog<Void> {
         this.getDialogPane().setContent(batchUpdateDialogPane);
         this.getDialogPane().setPrefSize(1600, 1200);
         this.getDialogPane().getScene().getWindow().setOnCloseRequest(event -> this.close());
+        this.setOnHidden(event -> batchUpdateDialogPane.cancelPreview());
 
         this.setTitle("Batch image update");
         this.initOwner(parentWindow);
@@ -15,14 +15,26 @@
  */
 package de.perdian.apps.imagetiger.fx.panes.selection.batchupdate;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import de.perdian.apps.imagetiger.fx.model.batchupdate.BatchUpdateField;
 import de.perdian.apps.imagetiger.fx.model.batchupdate.BatchUpdateItem;
+import de.perdian.apps.imagetiger.fx.model.batchupdate.BatchUpdatePreview;
 import de.perdian.apps.imagetiger.fx.model.batchupdate.BatchUpdateSettings;
 import de.perdian.apps.imagetiger.fx.model.selection.Selection;
+import de.perdian.apps.imagetiger.fx.support.executors.ImageProcessingExecutor;
+import de.perdian.apps.imagetiger.fx.support.executors.ImageProcessingWorkload;
 import de.perdian.apps.imagetiger.fx.support.jobs.JobExecutor;
+import javafx.animation.PauseTransition;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ObservableBooleanValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -31,12 +43,16 @@ import javafx.geometry.Insets;
 import javafx.scene.control.TitledPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
+import javafx.util.Duration;
 
 class BatchUpdateDialogPane extends GridPane {
 
+    private static final long PREVIEW_DELAY_MILLIS = 300;
+
     private ObjectProperty<EventHandler<ActionEvent>> onTransferProperty = new SimpleObjectProperty<>(event -> {});
+    private BatchUpdatePreview preview = null;
 
-    BatchUpdateDialogPane(BatchUpdateSettings settings, Selection selection, JobExecutor jobExecutor) {
+    BatchUpdateDialogPane(BatchUpdateSettings settings, Selection selection, JobExecutor jobExecutor, ImageProcessingExecutor imageProcessingExecutor) {
 
         List<BatchUpdateItem> items = selection.getAvailableImageFiles().stream().map(BatchUpdateItem::new).toList();
         ObservableList<BatchUpdateItem> observableItems = FXCollections.observableArrayList(items);
@@ -55,7 +71,33 @@ class BatchUpdateDialogPane extends GridPane {
         GridPane.setHgrow(itemsTableView, Priority.ALWAYS);
         GridPane.setVgrow(itemsTableView, Priority.ALWAYS);
 
-        BatchUpdateActionsPane actionsPane = new BatchUpdateActionsPane(observableItems, observableItems, settings, jobExecutor, this.onTransferProperty);
+        // While the live preview is active the new values are computed once the user has stopped typing for a short
+        // moment, but only for the fields whose templates have actually been changed
+        BatchUpdatePreview preview = new BatchUpdatePreview(observableItems, settings, imageProcessingExecutor.getExecutor(ImageProcessingWorkload.BATCH));
+        BooleanProperty previewPending = new SimpleBooleanProperty(false);
+        Set<BatchUpdateField> previewFields = EnumSet.noneOf(BatchUpdateField.class);
+        PauseTransition previewDelayTransition = new PauseTransition(Duration.millis(PREVIEW_DELAY_MILLIS));
+        previewDelayTransition.setOnFinished(event -> {
+            if (settings.getLivePreview().get() && !previewFields.isEmpty()) {
+                preview.compute(EnumSet.copyOf(previewFields), itemsTableView.getVisibleItems());
+            }
+            previewFields.clear();
+            previewPending.setValue(false);
+        });
+        Consumer<Set<BatchUpdateField>> previewScheduler = changedFields -> {
+            preview.cancel();
+            previewFields.addAll(changedFields);
+            previewDelayTransition.playFromStart();
+            previewPending.setValue(settings.getLivePreview().get());
+        };
+        for (BatchUpdateField field : BatchUpdateField.values()) {
+            field.getTemplate(settings).addListener((o, oldValue, newValue) -> previewScheduler.accept(EnumSet.of(field)));
+        }
+        settings.getOriginalFileNamePattern().addListener((o, oldValue, newValue) -> previewScheduler.accept(EnumSet.allOf(BatchUpdateField.class)));
+        settings.getLivePreview().addListener((o, oldValue, newValue) -> previewScheduler.accept(EnumSet.allOf(BatchUpdateField.class)));
+        ObservableBooleanValue previewBusy = Bindings.or(previewPending, preview.getBusy());
+
+        BatchUpdateActionsPane actionsPane = new BatchUpdateActionsPane(observableItems, observableItems, settings, jobExecutor, imageProcessingExecutor, previewBusy, this.onTransferProperty);
         actionsPane.setPadding(new Insets(10, 10, 10, 10));
         actionsPane.disableProperty().bind(selection.getBusy());
         TitledPane actionsTitledPane = new TitledPane("Actions", actionsPane);
@@ -70,6 +112,12 @@ class BatchUpdateDialogPane extends GridPane {
         this.setHgap(10);
         this.setVgap(10);
 
+        this.setPreview(preview);
+
+    }
+
+    void cancelPreview() {
+        this.getPreview().cancel();
     }
 
     EventHandler<ActionEvent> getOnTransfer() {
@@ -79,4 +127,11 @@ class BatchUpdateDialogPane extends GridPane {
         this.onTransferProperty.setValue(onTransfer);
     }
 
+    private BatchUpdatePreview getPreview() {
+        return this.preview;
+    }
+    private void setPreview(BatchUpdatePreview preview) {
+        this.preview = preview;
+    }
+
 }
@@ -22,10 +22,12 @@ import org.kordamp.ikonli.materialdesign2.MaterialDesignF;
 import de.perdian.apps.imagetiger.fx.model.batchupdate.BatchUpdateItem;
 import de.perdian.apps.imagetiger.fx.support.tables.TableViewHelper;
 import javafx.collections.ObservableList;
+import javafx.scene.control.IndexedCell;
 import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.TextFieldTableCell;
+import javafx.scene.control.skin.VirtualFlow;
 
 class BatchUpdateItemTableView extends TableView<BatchUpdateItem> {
 
@@ -87,4 +89,17 @@ class BatchUpdateItemTableView extends TableView<BatchUpdateItem> {
 
     }
 
+    List<BatchUpdateItem> getVisibleItems() {
+        if (this.lookup(".virtual-flow") instanceof VirtualFlow<?> virtualFlow) {
+            IndexedCell<?> firstVisibleCell = virtualFlow.getFirstVisibleCell();
+            IndexedCell<?> lastVisibleCell = virtualFlow.getLastVisibleCell();
+            if (firstVisibleCell != null && lastVisibleCell != null) {
+                int fromIndex = Math.max(0, firstVisibleCell.getIndex());
+                int toIndex = Math.min(this.getItems().size(), lastVisibleCell.getIndex() + 1);
+                return fromIndex < toIndex ? List.copyOf(this.getItems().subList(fromIndex, toIndex)) : List.of();
+            }
+        }
+        return List.of();
+    }
+
 }
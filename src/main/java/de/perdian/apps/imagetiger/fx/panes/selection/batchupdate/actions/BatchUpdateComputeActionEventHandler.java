@@ -23,6 +23,8 @@ import org.slf4j.LoggerFactory;
 import de.perdian.apps.imagetiger.fx.model.batchupdate.BatchUpdateItem;
 import de.perdian.apps.imagetiger.fx.model.batchupdate.BatchUpdateJob;
 import de.perdian.apps.imagetiger.fx.model.batchupdate.BatchUpdateSettings;
+import de.perdian.apps.imagetiger.fx.support.executors.ImageProcessingExecutor;
+import de.perdian.apps.imagetiger.fx.support.executors.ImageProcessingWorkload;
 import de.perdian.apps.imagetiger.fx.support.jobs.JobExecutor;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
@@ -34,17 +36,19 @@ public class BatchUpdateComputeActionEventHandler implements EventHandler<Action
     private List<BatchUpdateItem> items = null;
     private BatchUpdateSettings settings = null;
     private JobExecutor jobExecutor = null;
+    private ImageProcessingExecutor imageProcessingExecutor = null;
 
-    public BatchUpdateComputeActionEventHandler(List<BatchUpdateItem> items, BatchUpdateSettings settings, JobExecutor jobExecutor) {
+    public BatchUpdateComputeActionEventHandler(List<BatchUpdateItem> items, BatchUpdateSettings settings, JobExecutor jobExecutor, ImageProcessingExecutor imageProcessingExecutor) {
         this.setItems(items);
         this.setSettings(settings);
         this.setJobExecutor(jobExecutor);
+        this.setImageProcessingExecutor(imageProcessingExecutor);
     }
 
     @Override
     public void handle(ActionEvent event) {
         log.debug("Preparing property evaluation from settings: {}", this.getSettings());
-        this.getJobExecutor().executeJob(new BatchUpdateJob(this.getItems(), this.getSettings()));
+        this.getJobExecutor().executeJob(new BatchUpdateJob(this.getItems(), this.getSettings(), this.getImageProcessingExecutor().getExecutor(ImageProcessingWorkload.BATCH)));
     }
 
     private List<BatchUpdateItem> getItems() {
@@ -61,6 +65,13 @@ public class BatchUpdateComputeActionEventHandler implements EventHandler<Action
         this.settings = settings;
     }
 
+    private ImageProcessingExecutor getImageProcessingExecutor() {
+        return this.imageProcessingExecutor;
+    }
+    private void setImageProcessingExecutor(ImageProcessingExecutor imageProcessingExecutor) {
+        this.imageProcessingExecutor = imageProcessingExecutor;
+    }
+
     private JobExecutor getJobExecutor() {
         return this.jobExecutor;
     }
@@ -18,6 +18,7 @@ package de.perdian.apps.imagetiger.fx.panes.selection.batchupdate.actions;
 import java.util.List;
 
 import de.perdian.apps.imagetiger.fx.model.batchupdate.BatchUpdateItem;
+import de.perdian.apps.imagetiger.fx.support.jobs.JobClass;
 import de.perdian.apps.imagetiger.fx.support.jobs.JobExecutor;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
@@ -36,7 +37,7 @@ public class BatchUpdateResetActionEventHandler implements EventHandler<ActionEv
     public void handle(ActionEvent event) {
         this.getJobExecutor().executeJob(jobContext -> {
             this.getItems().forEach(item -> item.resetAllValues());
-        });
+        }, JobClass.COMPUTE);
     }
 
     private List<BatchUpdateItem> getItems() {
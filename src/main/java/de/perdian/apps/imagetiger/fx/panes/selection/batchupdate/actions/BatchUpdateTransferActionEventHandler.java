@@ -21,6 +21,7 @@ import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 
 import de.perdian.apps.imagetiger.fx.model.batchupdate.BatchUpdateItem;
+import de.perdian.apps.imagetiger.fx.support.jobs.JobClass;
 import de.perdian.apps.imagetiger.fx.support.jobs.JobExecutor;
 import de.perdian.apps.imagetiger.model.ImageFile;
 import javafx.beans.property.ObjectProperty;
@@ -52,7 +53,7 @@ public class BatchUpdateTransferActionEventHandler implements EventHandler<Actio
                 }
             }
             this.getOnTransferProperty().getValue().handle(event);
-        });
+        }, JobClass.COMPUTE);
     }
 
     private void saveItem(BatchUpdateItem item) {
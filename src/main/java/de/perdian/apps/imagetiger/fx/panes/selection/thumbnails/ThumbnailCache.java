@@ -0,0 +1,166 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.panes.selection.thumbnails;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.perdian.apps.imagetiger.model.ImageFile;
+import javafx.scene.image.Image;
+
+/**
+ * In memory cache for computed thumbnail images. The cache is limited by the (approximated) number of bytes that the
+ * pixels of all cached images occupy and evicts the least recently used images once that limit has been reached.
+ *
+ * @author Christian Seifert
+ */
+
+class ThumbnailCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailCache.class);
+
+    private Map<Key, Image> images = new LinkedHashMap<>(256, 0.75f, true);
+    private long maxBytes = 0;
+    private long currentBytes = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    ThumbnailCache(long maxBytes) {
+        this.setMaxBytes(maxBytes);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ThumbnailCache[images=" + this.getImages().size() + ", bytes=" + this.getCurrentBytes() + "/" + this.getMaxBytes() + ", hits=" + this.getHitCount() + ", misses=" + this.getMissCount() + ", hitRate=" + String.format("%.2f", this.getHitRate()) + ", evictions=" + this.getEvictionCount() + "]";
+    }
+
+    synchronized Image get(ImageFile imageFile, int width, int height) {
+        Image image = this.getImages().get(new Key(imageFile, width, height));
+        if (image != null) {
+            this.hitCount++;
+        } else {
+            this.missCount++;
+        }
+        return image;
+    }
+
+    /**
+     * Looks up an image without counting the lookup as hit or miss, which is used when probing for images from which
+     * the requested image could be computed, so that the hit rate only reflects the images actually requested
+     */
+    synchronized Image peek(ImageFile imageFile, int width, int height) {
+        return this.getImages().get(new Key(imageFile, width, height));
+    }
+
+    synchronized void put(ImageFile imageFile, int width, int height, Image image) {
+        Image previousImage = this.getImages().put(new Key(imageFile, width, height), image);
+        if (previousImage != null) {
+            this.currentBytes -= ThumbnailCache.computeBytes(previousImage);
+        }
+        this.currentBytes += ThumbnailCache.computeBytes(image);
+        this.evictImages();
+    }
+
+    private void evictImages() {
+        Iterator<Image> imagesIterator = this.getImages().values().iterator();
+        while (this.getCurrentBytes() > this.getMaxBytes() && imagesIterator.hasNext()) {
+            this.currentBytes -= ThumbnailCache.computeBytes(imagesIterator.next());
+            this.evictionCount++;
+            imagesIterator.remove();
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("Thumbnail cache state: {}", this);
+        }
+    }
+
+    private static long computeBytes(Image image) {
+        return (long)image.getWidth() * (long)image.getHeight() * 4L;
+    }
+
+    static class Key {
+
+        private File osFile = null;
+        private Instant fileDate = null;
+        private int width = 0;
+        private int height = 0;
+
+        Key(ImageFile imageFile, int width, int height) {
+            this.osFile = imageFile.getOsFile();
+            this.fileDate = imageFile.getFileDate().getOriginalValue().getValue();
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object that) {
+            if (this == that) {
+                return true;
+            } else if (that instanceof Key thatKey) {
+                return Objects.equals(this.osFile, thatKey.osFile) && Objects.equals(this.fileDate, thatKey.fileDate) && this.width == thatKey.width && this.height == thatKey.height;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.osFile, this.fileDate, this.width, this.height);
+        }
+
+    }
+
+    public synchronized double getHitRate() {
+        long requestCount = this.getHitCount() + this.getMissCount();
+        return requestCount == 0 ? 0d : (double)this.getHitCount() / requestCount;
+    }
+
+    public synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    synchronized long getCurrentBytes() {
+        return this.currentBytes;
+    }
+
+    synchronized long getMaxBytes() {
+        return this.maxBytes;
+    }
+    synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.evictImages();
+    }
+
+    private Map<Key, Image> getImages() {
+        return this.images;
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.panes.selection.thumbnails;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import de.perdian.apps.imagetiger.fx.model.selection.Selection;
+import de.perdian.apps.imagetiger.model.ImageFile;
+import javafx.application.Platform;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.value.ObservableIntegerValue;
+import javafx.collections.ListChangeListener;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.scene.layout.HBox;
+
+/**
+ * Grid displaying the thumbnails of all available image files. The grid is organized in rows, each of which is
+ * rendered by a {@link ListCell}, so that only the rows within the visible viewport have actual nodes attached. These
+ * nodes are recycled while scrolling instead of creating a new {@link ThumbnailPane} for every image file.
+ *
+ * @author Christian Seifert
+ */
+
+class ThumbnailGridView extends ListView<List<ImageFile>> {
+
+    static final int GAP = 10;
+    static final int MIN_CELL_WIDTH = 100;
+
+    private Selection selection = null;
+    private IntegerProperty widthAndHeightProperty = null;
+    private int columns = 1;
+
+    ThumbnailGridView(Selection selection, IntegerProperty widthAndHeightProperty, ObservableIntegerValue renderedWidthAndHeightProperty, ThumbnailImageLoader thumbnailImageLoader, ThumbnailScheduler thumbnailScheduler) {
+        this.setSelection(selection);
+        this.setWidthAndHeightProperty(widthAndHeightProperty);
+        this.setCellFactory(listView -> new ThumbnailRowCell(() -> new ThumbnailPane(selection, widthAndHeightProperty, renderedWidthAndHeightProperty, thumbnailImageLoader, thumbnailScheduler)));
+        this.setFocusTraversable(false);
+        this.setStyle("-fx-background-color: transparent; -fx-background-insets: 0; -fx-padding: " + GAP + ";");
+        this.widthProperty().addListener((o, oldValue, newValue) -> this.recomputeRows());
+        widthAndHeightProperty.addListener((o, oldValue, newValue) -> this.recomputeRows());
+        selection.getAvailableImageFiles().addListener((ListChangeListener.Change<? extends ImageFile> change) -> {
+            if (Platform.isFxApplicationThread()) {
+                this.recomputeRows();
+            } else {
+                Platform.runLater(this::recomputeRows);
+            }
+        });
+        this.recomputeRows();
+
+        // The scheduler needs to know which rows are currently visible to decide which thumbnails to load first. The
+        // cells are only assigned to their rows during the layout, so we check them after each layout pass
+        Runnable visibleRowsUpdater = () -> this.updateVisibleRows(thumbnailScheduler);
+        this.sceneProperty().addListener((o, oldValue, newValue) -> {
+            if (oldValue != null) {
+                oldValue.removePostLayoutPulseListener(visibleRowsUpdater);
+            }
+            if (newValue != null) {
+                newValue.addPostLayoutPulseListener(visibleRowsUpdater);
+            }
+        });
+
+    }
+
+    private void updateVisibleRows(ThumbnailScheduler thumbnailScheduler) {
+        if (this.lookup(".virtual-flow") instanceof VirtualFlow<?> virtualFlow) {
+            IndexedCell<?> firstVisibleCell = virtualFlow.getFirstVisibleCell();
+            IndexedCell<?> lastVisibleCell = virtualFlow.getLastVisibleCell();
+            if (firstVisibleCell != null && lastVisibleCell != null) {
+                thumbnailScheduler.updateVisibleRows(firstVisibleCell.getIndex(), lastVisibleCell.getIndex());
+            }
+        }
+    }
+
+    /**
+     * Distributes the available image files into rows, depending upon the number of thumbnails fitting into the
+     * current width of the grid. Rows with unchanged content will not be rendered again.
+     */
+    private void recomputeRows() {
+        int cellWidth = Math.max(this.getWidthAndHeightProperty().getValue() + 2, MIN_CELL_WIDTH);
+        int availableWidth = (int)this.getWidth() - 4 * GAP; // Padding on both sides plus the scrollbar
+        int columns = Math.max(1, (availableWidth + GAP) / (cellWidth + GAP));
+        List<ImageFile> imageFiles = List.copyOf(this.getSelection().getAvailableImageFiles());
+        List<List<ImageFile>> rows = new ArrayList<>((imageFiles.size() + columns - 1) / columns);
+        for (int i=0; i < imageFiles.size(); i += columns) {
+            rows.add(imageFiles.subList(i, Math.min(i + columns, imageFiles.size())));
+        }
+        if (columns != this.getColumns() || !rows.equals(this.getItems())) {
+            this.setColumns(columns);
+            this.getItems().setAll(rows);
+        }
+    }
+
+    private static class ThumbnailRowCell extends ListCell<List<ImageFile>> {
+
+        private Supplier<ThumbnailPane> thumbnailPaneSupplier = null;
+        private List<ThumbnailPane> thumbnailPanes = new ArrayList<>();
+        private HBox thumbnailPanesBox = new HBox(GAP);
+
+        ThumbnailRowCell(Supplier<ThumbnailPane> thumbnailPaneSupplier) {
+            this.thumbnailPaneSupplier = thumbnailPaneSupplier;
+            this.setStyle("-fx-background-color: transparent; -fx-padding: 0 0 " + GAP + " 0;");
+        }
+
+        @Override
+        protected void updateItem(List<ImageFile> imageFiles, boolean empty) {
+            super.updateItem(imageFiles, empty);
+            int imageFilesCount = empty || imageFiles == null ? 0 : imageFiles.size();
+            while (this.thumbnailPanes.size() < imageFilesCount) {
+                this.thumbnailPanes.add(this.thumbnailPaneSupplier.get());
+            }
+            for (int i=0; i < this.thumbnailPanes.size(); i++) {
+                this.thumbnailPanes.get(i).updateImageFile(i < imageFilesCount ? imageFiles.get(i) : null, this.getIndex());
+            }
+            this.thumbnailPanesBox.getChildren().setAll(this.thumbnailPanes.subList(0, imageFilesCount));
+            this.setGraphic(imageFilesCount == 0 ? null : this.thumbnailPanesBox);
+        }
+
+    }
+
+    private Selection getSelection() {
+        return this.selection;
+    }
+    private void setSelection(Selection selection) {
+        this.selection = selection;
+    }
+
+    private IntegerProperty getWidthAndHeightProperty() {
+        return this.widthAndHeightProperty;
+    }
+    private void setWidthAndHeightProperty(IntegerProperty widthAndHeightProperty) {
+        this.widthAndHeightProperty = widthAndHeightProperty;
+    }
+
+    private int getColumns() {
+        return this.columns;
+    }
+    private void setColumns(int columns) {
+        this.columns = columns;
+    }
+
+}
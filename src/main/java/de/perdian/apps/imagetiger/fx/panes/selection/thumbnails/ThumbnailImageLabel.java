@@ -15,14 +15,15 @@
  */
 package de.perdian.apps.imagetiger.fx.panes.selection.thumbnails;
 
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
-import java.util.concurrent.Executor;
+import java.util.function.IntSupplier;
 
 import de.perdian.apps.imagetiger.model.ImageFile;
 import javafx.application.Platform;
 import javafx.beans.property.IntegerProperty;
-import javafx.embed.swing.SwingFXUtils;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableIntegerValue;
+import javafx.beans.value.ObservableValue;
+import javafx.beans.value.WeakChangeListener;
 import javafx.scene.control.Label;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
@@ -30,82 +31,128 @@ import javafx.scene.input.MouseButton;
 
 class ThumbnailImageLabel extends Label {
 
+    private ImageFile imageFile = null;
+    private ObservableIntegerValue renderedWidthAndHeightProperty = null;
     private Image currentImage = null;
+    private ChangeListener<Number> widthAndHeightListener = null;
+    private ChangeListener<Number> renderedWidthAndHeightListener = null;
 
-    ThumbnailImageLabel(ImageFile imageFile, IntegerProperty widthAndHeightProperty, Executor thumnailsScalingExecutor) {
+    ThumbnailImageLabel(ObservableValue<ImageFile> imageFileProperty, IntegerProperty widthAndHeightProperty, ObservableIntegerValue renderedWidthAndHeightProperty, ThumbnailImageLoader thumbnailImageLoader, ThumbnailScheduler thumbnailScheduler, IntSupplier rowIndexSupplier) {
+        this.setRenderedWidthAndHeightProperty(renderedWidthAndHeightProperty);
         this.minWidthProperty().bind(this.prefWidthProperty());
         this.minHeightProperty().bind(this.prefHeightProperty());
         this.maxWidthProperty().bind(this.prefWidthProperty());
         this.maxHeightProperty().bind(this.prefHeightProperty());
-        this.recomputeImage(imageFile, widthAndHeightProperty.intValue(), widthAndHeightProperty.intValue(), thumnailsScalingExecutor);
-        widthAndHeightProperty.addListener((o, oldValue, newValue) -> this.recomputeImage(imageFile, widthAndHeightProperty.getValue(), widthAndHeightProperty.getValue(), thumnailsScalingExecutor));
+        imageFileProperty.addListener((o, oldValue, newValue) -> {
+            synchronized (this) {
+                this.setImageFile(newValue);
+                this.setCurrentImage(null);
+            }
+            this.setGraphic(null);
+            this.setText(null);
+            this.recomputeImage(newValue, renderedWidthAndHeightProperty.get(), renderedWidthAndHeightProperty.get(), thumbnailImageLoader, thumbnailScheduler, rowIndexSupplier);
+        });
+
+        // While the size is being changed we only scale the existing image within the scene graph. The image itself
+        // is only rendered again once the size has settled. The size properties live as long as the application,
+        // so they must not keep the labels of panes alive that have been discarded by the grid
+        this.widthAndHeightListener = (o, oldValue, newValue) -> {
+            if (this.getGraphic() instanceof ImageView imageView) {
+                imageView.setFitWidth(newValue.doubleValue());
+                imageView.setFitHeight(newValue.doubleValue());
+            }
+        };
+        widthAndHeightProperty.addListener(new WeakChangeListener<>(this.widthAndHeightListener));
+        this.renderedWidthAndHeightListener = (o, oldValue, newValue) -> this.recomputeImage(this.getImageFile(), newValue.intValue(), newValue.intValue(), thumbnailImageLoader, thumbnailScheduler, rowIndexSupplier);
+        renderedWidthAndHeightProperty.addListener(new WeakChangeListener<>(this.renderedWidthAndHeightListener));
+
         this.setOnMouseClicked(event -> {
-            if (event.getButton() == MouseButton.PRIMARY && event.getClickCount() > 1) {
-                imageFile.openInNativeViewer();
+            if (event.getButton() == MouseButton.PRIMARY && event.getClickCount() > 1 && this.getImageFile() != null) {
+                this.getImageFile().openInNativeViewer();
             }
         });
     }
 
-    private void recomputeImage(ImageFile imageFile, int width, int height, Executor thumnailsScalingExecutor) {
-        if (width <= 0 || height <= 0) {
+    private void recomputeImage(ImageFile imageFile, int width, int height, ThumbnailImageLoader thumbnailImageLoader, ThumbnailScheduler thumbnailScheduler, IntSupplier rowIndexSupplier) {
+        if (imageFile == null) {
+            return; // Nothing to display
+        } else if (width <= 0 || height <= 0) {
             return; // Invalid image bounds
         } else if (this.getCurrentImage() != null && width == (int)this.getCurrentImage().getWidth() && height == (int)this.getCurrentImage().getHeight()) {
             return; // Identical image dimensions, no rescaling necessary
         } else {
-            this.setText("Loading image...");
-            thumnailsScalingExecutor.execute(() -> this.recomputeImageAsync(imageFile, width, height));
+            Image cachedImage = thumbnailImageLoader.lookupImage(imageFile, width, height);
+            if (cachedImage != null) {
+                this.updateImage(imageFile, cachedImage, width, height);
+                return;
+            } else if (this.getCurrentImage() == null) {
+                this.setText("Loading image...");
+            }
+            thumbnailScheduler.schedule(() -> this.recomputeImageAsync(imageFile, width, height, thumbnailImageLoader), rowIndexSupplier, () -> this.isObsolete(imageFile, width, height));
         }
     }
 
-    private void recomputeImageAsync(ImageFile imageFile, int width, int height) {
+    private void recomputeImageAsync(ImageFile imageFile, int width, int height, ThumbnailImageLoader thumbnailImageLoader) {
 
         // Only compute a scaled version if the bounds are still identical. There might have been several
         // rescaling requests all piled up to be performed but as we only care about the most recent one,
         // we'll ignore everything that isn't relevant any more
-        if (width != (int)this.getPrefWidth() || height != this.getPrefHeight()) {
+        if (this.isObsolete(imageFile, width, height)) {
             return;
         }
 
         try {
-
-            BufferedImage originalImage = imageFile.loadBufferedImage();
-            BufferedImage scaledImage = this.createScaledImage(originalImage, width, height);
-            Image image = SwingFXUtils.toFXImage(scaledImage, null);
-            originalImage.flush();
-
-            // Only update the image if the bounds are still identical
-            synchronized (this) {
-                if (width == (int)this.getPrefWidth() && height == (int)this.getPrefHeight()) {
-                    Platform.runLater(() -> {
-                        this.setText("");
-                        this.setGraphic(new ImageView(image));
-                    });
-                    this.setCurrentImage(image);;
-                }
-            }
-
+            thumbnailImageLoader.loadImage(imageFile, width, height, this.getCurrentImage() == null, image -> this.updateImage(imageFile, image, width, height));
         } catch (Throwable e) {
             Platform.runLater(() -> {
+                if (imageFile != this.getImageFile()) {
+                    return;
+                }
                 this.setGraphic(null);
                 this.setText("Cannot load image!");
             });
         }
     }
 
-    private BufferedImage createScaledImage(BufferedImage originalImage, int width, int height) {
+    private boolean isObsolete(ImageFile imageFile, int width, int height) {
+        int renderedWidthAndHeight = this.getRenderedWidthAndHeightProperty().get();
+        return width != renderedWidthAndHeight || height != renderedWidthAndHeight || imageFile != this.getImageFile();
+    }
+
+    private void updateImage(ImageFile imageFile, Image image, int width, int height) {
+        synchronized (this) {
+
+            // Only update the image if the bounds and the image file are still identical
+            if (!this.isObsolete(imageFile, width, height)) {
+                Platform.runLater(() -> {
+                    if (imageFile == this.getImageFile()) {
+                        this.setText("");
+                        ImageView imageView = new ImageView(image);
+                        imageView.setPreserveRatio(true);
+                        imageView.setSmooth(true);
+                        imageView.setFitWidth(this.getPrefWidth());
+                        imageView.setFitHeight(this.getPrefHeight());
+                        this.setGraphic(imageView);
+                    }
+                });
+                this.setCurrentImage(image);
+            }
 
-        double factorX = (double)width / originalImage.getWidth();
-        double factorY = (double)height / originalImage.getHeight();
-        double factor = Math.min(factorX, factorY);
-        int newWidth = (int)(originalImage.getWidth() * factor);
-        int newHeight = (int)(originalImage.getHeight() * factor);
+        }
+    }
 
-        BufferedImage scaledImage = new BufferedImage(newWidth, newHeight, originalImage.getType());
-        Graphics2D scaledGraphics = scaledImage.createGraphics();
-        scaledGraphics.drawImage(originalImage, 0, 0, newWidth, newHeight, null);
-        scaledGraphics.dispose();
-        return scaledImage;
+    private ObservableIntegerValue getRenderedWidthAndHeightProperty() {
+        return this.renderedWidthAndHeightProperty;
+    }
+    private void setRenderedWidthAndHeightProperty(ObservableIntegerValue renderedWidthAndHeightProperty) {
+        this.renderedWidthAndHeightProperty = renderedWidthAndHeightProperty;
+    }
 
+    private synchronized ImageFile getImageFile() {
+        return this.imageFile;
+    }
+    private synchronized void setImageFile(ImageFile imageFile) {
+        this.imageFile = imageFile;
     }
 
     private Image getCurrentImage() {
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.panes.selection.thumbnails;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
+
+import de.perdian.apps.imagetiger.model.ImageFile;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.Image;
+
+/**
+ * Loads the images displayed as thumbnails. A thumbnail can either be computed from the embedded thumbnail that most
+ * cameras store within the EXIF data of an image (which is available almost immediately) or from the image itself.
+ * Computed thumbnails are kept within a {@link ThumbnailCache}, so that they don't need to be computed again, and
+ * within a {@link ThumbnailStore}, so that they survive a restart of the application.
+ *
+ * @author Christian Seifert
+ */
+
+class ThumbnailImageLoader {
+
+    private boolean embeddedThumbnailsEnabled = true;
+    private ThumbnailCache cache = null;
+    private ThumbnailStore store = null;
+
+    ThumbnailImageLoader(boolean embeddedThumbnailsEnabled, ThumbnailCache cache, ThumbnailStore store) {
+        this.setEmbeddedThumbnailsEnabled(embeddedThumbnailsEnabled);
+        this.setCache(cache);
+        this.setStore(store);
+    }
+
+    /**
+     * Looks up a thumbnail that has already been computed for the given bounds
+     *
+     * @return
+     *     the cached thumbnail or {@code null} if no such thumbnail is available
+     */
+    Image lookupImage(ImageFile imageFile, int width, int height) {
+        return this.getCache().get(imageFile, width, height);
+    }
+
+    /**
+     * Loads the thumbnail for the given bounds and passes it to the consumer. If the embedded thumbnail of the file is
+     * too small for the requested bounds but a preview has been requested it will be passed to the consumer before the
+     * thumbnail is computed from the image itself.
+     */
+    void loadImage(ImageFile imageFile, int width, int height, boolean previewRequested, Consumer<Image> imageConsumer) throws Exception {
+
+        Image cachedImage = this.getCache().get(imageFile, width, height);
+        if (cachedImage != null) {
+            imageConsumer.accept(cachedImage);
+            return;
+        }
+
+        int tier = ThumbnailStore.selectTier(width, height);
+        if (tier > 0) {
+            BufferedImage tierImage = this.loadTierImage(imageFile, tier);
+            if (tierImage != null) {
+                imageConsumer.accept(this.cacheImage(imageFile, width, height, tierImage));
+                return;
+            }
+        }
+
+        BufferedImage embeddedImage = this.isEmbeddedThumbnailsEnabled() ? imageFile.loadEmbeddedThumbnailImage() : null;
+        if (embeddedImage != null) {
+            boolean embeddedImageLargeEnough = ThumbnailImageLoader.isLargeEnough(embeddedImage, width, height);
+            if (embeddedImageLargeEnough) {
+                imageConsumer.accept(this.cacheImage(imageFile, width, height, embeddedImage));
+                return;
+            } else if (previewRequested) {
+                imageConsumer.accept(SwingFXUtils.toFXImage(ThumbnailImageLoader.createScaledImage(embeddedImage, width, height), null));
+            }
+        }
+
+        // If the requested bounds are covered by a tier we compute the complete tier, so that later requests for any
+        // size up to the tier can be served from memory or the store without decoding the original image again
+        BufferedImage sourceImage = tier > 0 ? imageFile.loadThumbnailImage(tier, tier) : imageFile.loadThumbnailImage(width, height);
+        try {
+            if (tier > 0) {
+                BufferedImage tierImage = ThumbnailImageLoader.createScaledImage(sourceImage, tier, tier);
+                this.storeTierImage(imageFile, tier, tierImage);
+                imageConsumer.accept(this.cacheImage(imageFile, width, height, tierImage));
+            } else {
+                imageConsumer.accept(this.cacheImage(imageFile, width, height, sourceImage));
+            }
+        } finally {
+            sourceImage.flush();
+        }
+
+    }
+
+    /**
+     * Loads the image for the given tier. Tiers are kept within the memory cache as well, so if the tier itself or
+     * any larger tier is available in memory the image can be computed without accessing the disk at all, which is
+     * what happens most of the time when the thumbnail size is changed.
+     */
+    private BufferedImage loadTierImage(ImageFile imageFile, int tier) {
+        for (int cachedTier : ThumbnailStore.TIERS) {
+            Image cachedTierImage = cachedTier >= tier ? this.getCache().peek(imageFile, cachedTier, cachedTier) : null;
+            if (cachedTierImage != null) {
+                BufferedImage cachedTierBufferedImage = SwingFXUtils.fromFXImage(cachedTierImage, null);
+                return cachedTier == tier ? cachedTierBufferedImage : ThumbnailImageLoader.createScaledImage(cachedTierBufferedImage, tier, tier);
+            }
+        }
+        BufferedImage storedTierImage = this.getStore() == null ? null : this.getStore().load(imageFile, tier);
+        if (storedTierImage != null) {
+            this.getCache().put(imageFile, tier, tier, SwingFXUtils.toFXImage(storedTierImage, null));
+        }
+        return storedTierImage;
+    }
+
+    private void storeTierImage(ImageFile imageFile, int tier, BufferedImage tierImage) {
+        this.getCache().put(imageFile, tier, tier, SwingFXUtils.toFXImage(tierImage, null));
+        if (this.getStore() != null) {
+            this.getStore().store(imageFile, tier, tierImage);
+        }
+    }
+
+    private Image cacheImage(ImageFile imageFile, int width, int height, BufferedImage sourceImage) {
+        Image image = SwingFXUtils.toFXImage(ThumbnailImageLoader.createScaledImage(sourceImage, width, height), null);
+        this.getCache().put(imageFile, width, height, image);
+        return image;
+    }
+
+    /**
+     * Checks whether the given image has enough pixels to be scaled down into the given bounds
+     */
+    static boolean isLargeEnough(BufferedImage image, int width, int height) {
+        return Math.min((double)width / image.getWidth(), (double)height / image.getHeight()) <= 1d;
+    }
+
+    static BufferedImage createScaledImage(BufferedImage originalImage, int width, int height) {
+
+        double factorX = (double)width / originalImage.getWidth();
+        double factorY = (double)height / originalImage.getHeight();
+        double factor = Math.min(factorX, factorY);
+        int newWidth = Math.max(1, (int)(originalImage.getWidth() * factor));
+        int newHeight = Math.max(1, (int)(originalImage.getHeight() * factor));
+
+        BufferedImage scaledImage = new BufferedImage(newWidth, newHeight, originalImage.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D scaledGraphics = scaledImage.createGraphics();
+        scaledGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        scaledGraphics.drawImage(originalImage, 0, 0, newWidth, newHeight, null);
+        scaledGraphics.dispose();
+        return scaledImage;
+
+    }
+
+    private boolean isEmbeddedThumbnailsEnabled() {
+        return this.embeddedThumbnailsEnabled;
+    }
+    private void setEmbeddedThumbnailsEnabled(boolean embeddedThumbnailsEnabled) {
+        this.embeddedThumbnailsEnabled = embeddedThumbnailsEnabled;
+    }
+
+    private ThumbnailCache getCache() {
+        return this.cache;
+    }
+    private void setCache(ThumbnailCache cache) {
+        this.cache = cache;
+    }
+
+    private ThumbnailStore getStore() {
+        return this.store;
+    }
+    private void setStore(ThumbnailStore store) {
+        this.store = store;
+    }
+
+}
@@ -16,7 +16,6 @@
 package de.perdian.apps.imagetiger.fx.panes.selection.thumbnails;
 
 import java.util.Objects;
-import java.util.concurrent.Executor;
 
 import org.kordamp.ikonli.javafx.FontIcon;
 import org.kordamp.ikonli.materialdesign2.MaterialDesignC;
@@ -26,8 +25,14 @@ import de.perdian.apps.imagetiger.model.ImageFile;
 import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableIntegerValue;
+import javafx.beans.value.WeakChangeListener;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
 import javafx.geometry.HPos;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -43,43 +48,49 @@ import javafx.scene.paint.Color;
 
 class ThumbnailPane extends GridPane {
 
-    ThumbnailPane(Selection selection, ImageFile imageFile, IntegerProperty widthAndHeightProperty, Executor thumnailsScalingExecutor) {
+    private ObjectProperty<ImageFile> imageFile = new SimpleObjectProperty<>();
+    private volatile int rowIndex = -1;
+    private ListChangeListener<ImageFile> selectedImageFilesListener = null;
+    private ChangeListener<ImageFile> primaryImageFileListener = null;
 
-        ThumbnailImageLabel imageLabel = new ThumbnailImageLabel(imageFile, widthAndHeightProperty, thumnailsScalingExecutor);
+    ThumbnailPane(Selection selection, IntegerProperty widthAndHeightProperty, ObservableIntegerValue renderedWidthAndHeightProperty, ThumbnailImageLoader thumbnailImageLoader, ThumbnailScheduler thumbnailScheduler) {
+
+        ThumbnailImageLabel imageLabel = new ThumbnailImageLabel(this.imageFile, widthAndHeightProperty, renderedWidthAndHeightProperty, thumbnailImageLoader, thumbnailScheduler, () -> this.rowIndex);
         imageLabel.setAlignment(Pos.CENTER);
         imageLabel.prefWidthProperty().bind(widthAndHeightProperty);
         imageLabel.prefHeightProperty().bind(widthAndHeightProperty);
         imageLabel.setBorder(Border.stroke(Color.rgb(224, 224, 224)));
         imageLabel.focusedProperty().addListener((o, oldValue, newValue) -> {
-            if (newValue) {
-                selection.updatePrimaryImageFile(imageFile);
+            if (newValue && this.getImageFile() != null) {
+                selection.updatePrimaryImageFile(this.getImageFile());
             }
         });
+        GridPane.setHalignment(imageLabel, HPos.CENTER);
 
         ToggleButton selectedButton = new ToggleButton("Selected");
         selectedButton.setGraphic(new FontIcon(MaterialDesignC.CHECKBOX_BLANK_OUTLINE));
         selectedButton.selectedProperty().addListener((o, oldValue, newValue) -> Platform.runLater(() -> selectedButton.setGraphic(new FontIcon(newValue ? MaterialDesignC.CHECKBOX_MARKED : MaterialDesignC.CHECKBOX_BLANK_OUTLINE))));
         selectedButton.focusedProperty().addListener((o, oldValue, newValue) -> {
-            if (newValue) {
-                selection.updatePrimaryImageFile(imageFile);
+            if (newValue && this.getImageFile() != null) {
+                selection.updatePrimaryImageFile(this.getImageFile());
             }
         });
         GridPane.setHalignment(selectedButton, HPos.CENTER);
         GridPane.setHgrow(selectedButton, Priority.ALWAYS);
 
-        selectedButton.setSelected(selection.getSelectedImageFiles().contains(imageFile));
         selectedButton.selectedProperty().addListener((o, oldValue, newValue) -> {
-            if (newValue && !selection.getSelectedImageFiles().contains(imageFile)) {
+            ImageFile imageFile = this.getImageFile();
+            if (imageFile == null) {
+                return;
+            } else if (newValue && !selection.getSelectedImageFiles().contains(imageFile)) {
                 selection.getSelectedImageFiles().add(imageFile);
             } else if (!newValue && selection.getSelectedImageFiles().contains(imageFile)) {
                 selection.getSelectedImageFiles().remove(imageFile);
             }
         });
-        selection.getSelectedImageFiles().addListener((ListChangeListener.Change<? extends ImageFile> change) -> selectedButton.setSelected(change.getList().contains(imageFile)));
         GridPane.setMargin(selectedButton, new Insets(5, 5, 5, 5));
 
         Label fileNameLabel = new Label();
-        fileNameLabel.textProperty().bind(imageFile.getFileName().getOriginalValue());
         fileNameLabel.maxWidthProperty().bind(Bindings.subtract(widthAndHeightProperty, 10));
         GridPane.setMargin(fileNameLabel, new Insets(5, 5, 5, 5));
 
@@ -87,23 +98,53 @@ class ThumbnailPane extends GridPane {
         this.add(new Separator(), 0, 1, 1, 1);
         this.add(selectedButton, 0, 2, 1, 1);
         this.add(fileNameLabel, 0, 3, 1, 1);
+        this.minWidthProperty().bind(Bindings.max(Bindings.add(widthAndHeightProperty, 2), ThumbnailGridView.MIN_CELL_WIDTH));
+        this.prefWidthProperty().bind(this.minWidthProperty());
+
+        // The pane is recycled for different image files while the grid is scrolled, so we update the controls
+        // whenever the image file changes instead of binding them to a single image file
+        this.imageFile.addListener((o, oldValue, newValue) -> {
+            fileNameLabel.textProperty().unbind();
+            if (newValue != null) {
+                fileNameLabel.textProperty().bind(newValue.getFileName().getOriginalValue());
+            } else {
+                fileNameLabel.setText(null);
+            }
+            selectedButton.setSelected(newValue != null && selection.getSelectedImageFiles().contains(newValue));
+            this.onUpdateSelectedImageFiles(newValue, selection.getSelectedImageFiles());
+            this.onUpdatePrimaryImageFile(newValue, selection.getPrimaryImageFile().getValue());
+        });
 
-        this.onUpdateSelectedImageFiles(imageFile, selection.getSelectedImageFiles());
-        selection.getSelectedImageFiles().addListener((ListChangeListener.Change<? extends ImageFile> change) -> this.onUpdateSelectedImageFiles(imageFile, change.getList()));
-
-        this.onUpdatePrimaryImageFile(imageFile, selection.getPrimaryImageFile().getValue());
-        selection.getPrimaryImageFile().addListener((o, oldValue, newValue) -> this.onUpdatePrimaryImageFile(imageFile, newValue));
+        // Panes are created and discarded by the grid as it sees fit, so the listeners registered at the selection
+        // must not keep the pane alive once the grid doesn't reference it any more
+        this.selectedImageFilesListener = change -> {
+            ImageFile imageFile = this.getImageFile();
+            selectedButton.setSelected(imageFile != null && change.getList().contains(imageFile));
+            this.onUpdateSelectedImageFiles(imageFile, change.getList());
+        };
+        selection.getSelectedImageFiles().addListener(new WeakListChangeListener<>(this.selectedImageFilesListener));
+        this.primaryImageFileListener = (o, oldValue, newValue) -> this.onUpdatePrimaryImageFile(this.getImageFile(), newValue);
+        selection.getPrimaryImageFile().addListener(new WeakChangeListener<>(this.primaryImageFileListener));
 
         this.setOnMouseClicked(event -> {
-            if (event.getButton() == MouseButton.PRIMARY) {
-                selection.updatePrimaryImageFile(imageFile);
+            if (event.getButton() == MouseButton.PRIMARY && this.getImageFile() != null) {
+                selection.updatePrimaryImageFile(this.getImageFile());
             }
         });
 
     }
 
+    void updateImageFile(ImageFile imageFile, int rowIndex) {
+        this.rowIndex = rowIndex;
+        this.imageFile.setValue(imageFile);
+    }
+
+    private ImageFile getImageFile() {
+        return this.imageFile.getValue();
+    }
+
     private void onUpdateSelectedImageFiles(ImageFile imageFile, ObservableList<? extends ImageFile> selectedImageFiles) {
-        if (selectedImageFiles.contains(imageFile)) {
+        if (imageFile != null && selectedImageFiles.contains(imageFile)) {
             Platform.runLater(() -> this.setBackground(Background.fill(Color.rgb(255, 255, 255))));
         } else {
             Platform.runLater(() -> this.setBackground(Background.fill(Color.rgb(224, 224, 224))));
@@ -111,7 +152,7 @@ class ThumbnailPane extends GridPane {
     }
 
     private void onUpdatePrimaryImageFile(ImageFile imageFile, ImageFile primaryImageFile) {
-        if (Objects.equals(imageFile, primaryImageFile)) {
+        if (imageFile != null && Objects.equals(imageFile, primaryImageFile)) {
             Platform.runLater(() -> this.setBorder(Border.stroke(Color.rgb(255, 0, 0))));
         } else {
             Platform.runLater(() -> this.setBorder(Border.stroke(Color.rgb(204, 204, 204))));
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.panes.selection.thumbnails;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Schedules the loading of thumbnails depending upon the position of the requesting cell relative to the visible
+ * viewport of the grid. Tasks for visible rows are executed first, followed by tasks for rows close to the viewport.
+ * The priority is evaluated when a worker becomes available instead of when the task is scheduled, so that tasks for
+ * rows that have been scrolled away are demoted and tasks that have become obsolete are dropped before they start.
+ *
+ * @author Christian Seifert
+ */
+
+class ThumbnailScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailScheduler.class);
+    private static final int NEARBY_ROWS = 3;
+
+    private Executor executor = null;
+    private int parallelism = 1;
+    private int activeWorkers = 0;
+    private List<Task> pendingTasks = new ArrayList<>();
+    private long nextSequence = 0;
+    private volatile int firstVisibleRow = 0;
+    private volatile int lastVisibleRow = Integer.MAX_VALUE;
+    private AtomicLong executedCount = new AtomicLong();
+    private AtomicLong cancelledCount = new AtomicLong();
+    private AtomicLong totalWaitNanos = new AtomicLong();
+
+    ThumbnailScheduler(Executor executor, int parallelism) {
+        this.setExecutor(executor);
+        this.setParallelism(Math.max(1, parallelism));
+    }
+
+    @Override
+    public String toString() {
+        return "ThumbnailScheduler[queueDepth=" + this.getQueueDepth() + ", executed=" + this.getExecutedCount() + ", cancelled=" + this.getCancelledCount() + ", averageWaitMillis=" + this.getAverageWaitMillis() + "]";
+    }
+
+    /**
+     * Schedules a task for execution
+     *
+     * @param runnable
+     *     the actual work to be done
+     * @param rowIndexSupplier
+     *     returns the row of the grid in which the result will be displayed
+     * @param obsoleteSupplier
+     *     returns {@code true} if the result isn't needed any more, in which case the task will be dropped
+     */
+    void schedule(Runnable runnable, IntSupplier rowIndexSupplier, BooleanSupplier obsoleteSupplier) {
+        synchronized (this) {
+            this.getPendingTasks().add(new Task(runnable, rowIndexSupplier, obsoleteSupplier, this.nextSequence++));
+            if (this.activeWorkers >= this.getParallelism()) {
+                return; // One of the active workers will pick up the task
+            }
+            this.activeWorkers++;
+        }
+        this.getExecutor().execute(this::executeTasks);
+    }
+
+    /**
+     * Updates the rows currently visible within the viewport of the grid
+     */
+    void updateVisibleRows(int firstVisibleRow, int lastVisibleRow) {
+        this.firstVisibleRow = firstVisibleRow;
+        this.lastVisibleRow = lastVisibleRow;
+    }
+
+    private void executeTasks() {
+        for (Task nextTask = this.takeNextTask(); nextTask != null; nextTask = this.takeNextTask()) {
+            this.totalWaitNanos.addAndGet(System.nanoTime() - nextTask.scheduledNanos);
+            this.executedCount.incrementAndGet();
+            try {
+                nextTask.runnable.run();
+            } catch (Exception e) {
+                log.warn("Error occured while executing thumbnail task", e);
+            }
+        }
+    }
+
+    private synchronized Task takeNextTask() {
+        Task nextTask = null;
+        int nextTaskPriority = Integer.MAX_VALUE;
+        for (Iterator<Task> taskIterator = this.getPendingTasks().iterator(); taskIterator.hasNext(); ) {
+            Task task = taskIterator.next();
+            if (task.obsoleteSupplier.getAsBoolean()) {
+                this.cancelledCount.incrementAndGet();
+                taskIterator.remove();
+            } else {
+
+                // Within the same priority the most recently scheduled task wins, as it's most likely the one for the
+                // area the user is currently looking at
+                int taskPriority = this.computePriority(task.rowIndexSupplier.getAsInt());
+                if (taskPriority < nextTaskPriority || (taskPriority == nextTaskPriority && task.sequence > nextTask.sequence)) {
+                    nextTask = task;
+                    nextTaskPriority = taskPriority;
+                }
+
+            }
+        }
+        if (nextTask == null) {
+            this.activeWorkers--;
+        } else {
+            this.getPendingTasks().remove(nextTask);
+            if (log.isTraceEnabled()) {
+                log.trace("Executing thumbnail task with priority {} [{}]", nextTaskPriority, this);
+            }
+        }
+        return nextTask;
+    }
+
+    /**
+     * Computes the priority for a task in the given row. Visible rows get the priority {@code 0}, rows close to the
+     * viewport the priority {@code 1} and all other rows a priority depending upon their distance to the viewport.
+     */
+    private int computePriority(int rowIndex) {
+        int distance = rowIndex < this.firstVisibleRow ? this.firstVisibleRow - rowIndex : rowIndex > this.lastVisibleRow ? rowIndex - this.lastVisibleRow : 0;
+        return distance == 0 ? 0 : distance <= NEARBY_ROWS ? 1 : 1 + distance;
+    }
+
+    private static class Task {
+
+        private Runnable runnable = null;
+        private IntSupplier rowIndexSupplier = null;
+        private BooleanSupplier obsoleteSupplier = null;
+        private long sequence = 0;
+        private long scheduledNanos = System.nanoTime();
+
+        private Task(Runnable runnable, IntSupplier rowIndexSupplier, BooleanSupplier obsoleteSupplier, long sequence) {
+            this.runnable = runnable;
+            this.rowIndexSupplier = rowIndexSupplier;
+            this.obsoleteSupplier = obsoleteSupplier;
+            this.sequence = sequence;
+        }
+
+    }
+
+    public synchronized int getQueueDepth() {
+        return this.getPendingTasks().size();
+    }
+
+    public long getExecutedCount() {
+        return this.executedCount.get();
+    }
+
+    public long getCancelledCount() {
+        return this.cancelledCount.get();
+    }
+
+    public long getAverageWaitMillis() {
+        long executedCount = this.getExecutedCount();
+        return executedCount == 0 ? 0 : this.totalWaitNanos.get() / executedCount / 1_000_000L;
+    }
+
+    private Executor getExecutor() {
+        return this.executor;
+    }
+    private void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    private int getParallelism() {
+        return this.parallelism;
+    }
+    private void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    private List<Task> getPendingTasks() {
+        return this.pendingTasks;
+    }
+
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.panes.selection.thumbnails;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.perdian.apps.imagetiger.model.ImageFile;
+
+/**
+ * Persistent store for pre-rendered thumbnails. Thumbnails are stored in a few fixed resolutions (tiers), so that a
+ * thumbnail for any requested size can be computed by scaling down the next larger tier instead of decoding the
+ * original image again. An entry is identified by the path, the size and the last modification time of the file.
+ * <p>
+ * As every change of a file leads to new entries, the store is kept within a size budget by removing the entries that
+ * haven't been used for the longest time. Reading an entry renews its modification time, which is then used to find
+ * the least recently used entries.
+ *
+ * @author Christian Seifert
+ */
+
+class ThumbnailStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailStore.class);
+
+    static final int[] TIERS = { 64, 128, 256, 512 };
+    private static final long TOUCH_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private Path storageDirectory = null;
+    private long maxBytes = 0;
+    private Executor cleanupExecutor = null;
+    private AtomicLong bytesWrittenSinceCleanup = new AtomicLong();
+    private AtomicBoolean cleanupScheduled = new AtomicBoolean();
+
+    /**
+     * Creates a new store
+     *
+     * @param maxBytes
+     *     the number of bytes the stored thumbnails may occupy on disk
+     * @param cleanupExecutor
+     *     the executor on which the least recently used entries are removed once the budget is exceeded
+     */
+    ThumbnailStore(Path storageDirectory, long maxBytes, Executor cleanupExecutor) {
+        this.setStorageDirectory(storageDirectory);
+        this.setMaxBytes(maxBytes);
+        this.setCleanupExecutor(cleanupExecutor);
+        this.scheduleCleanup();
+    }
+
+    /**
+     * Selects the smallest tier that is large enough for the given bounds
+     *
+     * @return
+     *     the tier or {@code -1} if the bounds are larger than the largest available tier
+     */
+    static int selectTier(int width, int height) {
+        int requiredSize = Math.max(width, height);
+        for (int tier : TIERS) {
+            if (tier >= requiredSize) {
+                return tier;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Loads the thumbnail for the given tier. If the tier itself hasn't been stored yet but a larger tier is available,
+     * the requested tier will be computed from the larger one and stored as well.
+     *
+     * @return
+     *     the thumbnail or {@code null} if neither the tier itself nor any larger tier is available
+     */
+    BufferedImage load(ImageFile imageFile, int tier) {
+        String storageKey = ThumbnailStore.createStorageKey(imageFile);
+        BufferedImage tierImage = this.readTierImage(storageKey, tier);
+        if (tierImage == null) {
+            for (int i=TIERS.length - 1; i >= 0 && TIERS[i] > tier; i--) {
+                BufferedImage largerTierImage = this.readTierImage(storageKey, TIERS[i]);
+                if (largerTierImage != null) {
+                    tierImage = ThumbnailImageLoader.createScaledImage(largerTierImage, tier, tier);
+                    this.writeTierImage(storageKey, tier, tierImage);
+                    break;
+                }
+            }
+        }
+        return tierImage;
+    }
+
+    /**
+     * Stores the thumbnail for the given tier
+     */
+    void store(ImageFile imageFile, int tier, BufferedImage tierImage) {
+        this.writeTierImage(ThumbnailStore.createStorageKey(imageFile), tier, tierImage);
+    }
+
+    /**
+     * Removes the least recently used entries until the stored thumbnails fit into the budget again. Entries are
+     * removed down to 90% of the budget, so that not every single write leads to another cleanup.
+     */
+    void cleanup() {
+        if (Files.isDirectory(this.getStorageDirectory())) {
+            List<StoredFile> storedFiles = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            try (Stream<Path> storagePaths = Files.walk(this.getStorageDirectory())) {
+                for (Path storagePath : (Iterable<Path>)storagePaths::iterator) {
+                    BasicFileAttributes storageAttributes = Files.readAttributes(storagePath, BasicFileAttributes.class);
+                    String storageFileName = storagePath.getFileName().toString();
+                    if (storageAttributes.isRegularFile() && storageFileName.endsWith(".tmp") && now - storageAttributes.lastModifiedTime().toMillis() > TOUCH_INTERVAL_MILLIS) {
+                        Files.deleteIfExists(storagePath); // Left behind by an interrupted write
+                    } else if (storageAttributes.isRegularFile() && storageFileName.endsWith(".jpg")) {
+                        storedFiles.add(new StoredFile(storagePath, storageAttributes.size(), storageAttributes.lastModifiedTime().toMillis()));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Cannot list stored thumbnails in directory: {}", this.getStorageDirectory(), e);
+            }
+
+            long totalBytes = storedFiles.stream().mapToLong(storedFile -> storedFile.size).sum();
+            long targetBytes = this.getMaxBytes() / 10 * 9;
+            if (totalBytes > this.getMaxBytes()) {
+                storedFiles.sort(Comparator.comparingLong(storedFile -> storedFile.lastUsed));
+                int removedFiles = 0;
+                for (int i=0; i < storedFiles.size() && totalBytes > targetBytes; i++) {
+                    try {
+                        Files.deleteIfExists(storedFiles.get(i).path);
+                        totalBytes -= storedFiles.get(i).size;
+                        removedFiles++;
+                    } catch (IOException e) {
+                        log.debug("Cannot remove stored thumbnail at: {}", storedFiles.get(i).path, e);
+                    }
+                }
+                log.debug("Removed {} least recently used thumbnails from store, now using {} bytes", removedFiles, totalBytes);
+            }
+        }
+    }
+
+    private void scheduleCleanup() {
+        if (this.cleanupScheduled.compareAndSet(false, true)) {
+            this.bytesWrittenSinceCleanup.set(0);
+            this.getCleanupExecutor().execute(() -> {
+                try {
+                    this.cleanup();
+                } finally {
+                    this.cleanupScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private BufferedImage readTierImage(String storageKey, int tier) {
+        Path tierFile = this.resolveTierFile(storageKey, tier);
+        if (Files.exists(tierFile)) {
+            try {
+                BufferedImage tierImage = ImageIO.read(tierFile.toFile());
+                long now = System.currentTimeMillis();
+                if (now - Files.getLastModifiedTime(tierFile).toMillis() > TOUCH_INTERVAL_MILLIS) {
+                    Files.setLastModifiedTime(tierFile, FileTime.fromMillis(now));
+                }
+                return tierImage;
+            } catch (IOException e) {
+                log.debug("Cannot read thumbnail from file at: {}", tierFile, e);
+            }
+        }
+        return null;
+    }
+
+    private void writeTierImage(String storageKey, int tier, BufferedImage tierImage) {
+        Path tierFile = this.resolveTierFile(storageKey, tier);
+        try {
+            Files.createDirectories(tierFile.getParent());
+            Path temporaryFile = Files.createTempFile(tierFile.getParent(), storageKey, ".tmp");
+            try {
+                ImageIO.write(ThumbnailStore.createOpaqueImage(tierImage), "jpg", temporaryFile.toFile());
+                Files.move(temporaryFile, tierFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                if (this.bytesWrittenSinceCleanup.addAndGet(Files.size(tierFile)) > this.getMaxBytes() / 10) {
+                    this.scheduleCleanup();
+                }
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        } catch (IOException e) {
+            log.debug("Cannot write thumbnail into file at: {}", tierFile, e);
+        }
+    }
+
+    private Path resolveTierFile(String storageKey, int tier) {
+        return this.getStorageDirectory().resolve(String.valueOf(tier)).resolve(storageKey.substring(0, 2)).resolve(storageKey + ".jpg");
+    }
+
+    private static BufferedImage createOpaqueImage(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return image;
+        } else {
+            BufferedImage opaqueImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D opaqueGraphics = opaqueImage.createGraphics();
+            opaqueGraphics.drawImage(image, 0, 0, Color.WHITE, null);
+            opaqueGraphics.dispose();
+            return opaqueImage;
+        }
+    }
+
+    private static String createStorageKey(ImageFile imageFile) {
+        File osFile = imageFile.getOsFile();
+        String identity = osFile.getAbsolutePath() + "|" + osFile.length() + "|" + imageFile.getFileDate().getOriginalValue().getValue().toEpochMilli();
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(identity.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    private static class StoredFile {
+
+        private Path path = null;
+        private long size = 0;
+        private long lastUsed = 0;
+
+        private StoredFile(Path path, long size, long lastUsed) {
+            this.path = path;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+
+    }
+
+    private Path getStorageDirectory() {
+        return this.storageDirectory;
+    }
+    private void setStorageDirectory(Path storageDirectory) {
+        this.storageDirectory = storageDirectory;
+    }
+
+    private long getMaxBytes() {
+        return this.maxBytes;
+    }
+    private void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    private Executor getCleanupExecutor() {
+        return this.cleanupExecutor;
+    }
+    private void setCleanupExecutor(Executor cleanupExecutor) {
+        this.cleanupExecutor = cleanupExecutor;
+    }
+
+}
@@ -15,57 +15,72 @@
  */
 package de.perdian.apps.imagetiger.fx.panes.selection.thumbnails;
 
-import java.io.File;
-import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import de.perdian.apps.imagetiger.fx.ImageTigerPreferences;
 import de.perdian.apps.imagetiger.fx.model.selection.Selection;
+import de.perdian.apps.imagetiger.fx.support.executors.ImageProcessingExecutor;
+import de.perdian.apps.imagetiger.fx.support.executors.ImageProcessingWorkload;
 import de.perdian.apps.imagetiger.fx.support.jobs.JobExecutor;
-import de.perdian.apps.imagetiger.model.ImageFile;
-import javafx.application.Platform;
+import javafx.animation.PauseTransition;
 import javafx.beans.property.IntegerProperty;
-import javafx.collections.ListChangeListener;
+import javafx.beans.property.SimpleIntegerProperty;
 import javafx.geometry.Insets;
 import javafx.scene.control.Label;
-import javafx.scene.control.ScrollPane;
-import javafx.scene.control.ScrollPane.ScrollBarPolicy;
 import javafx.scene.control.Separator;
 import javafx.scene.control.Slider;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.FlowPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
+import javafx.util.Duration;
 
 public class ThumbnailsPane extends GridPane {
 
-    public ThumbnailsPane(Selection selection, JobExecutor jobExecutor, ImageTigerPreferences preferences) {
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailsPane.class);
 
-        FlowPane flowPane = new FlowPane();
-        flowPane.setPadding(new Insets(10, 10, 10, 10));
-        flowPane.setHgap(10);
-        flowPane.setVgap(10);
-
-        ScrollPane scrollPane = new ScrollPane(flowPane);
-        scrollPane.setFitToWidth(true);
-        scrollPane.setHbarPolicy(ScrollBarPolicy.NEVER);
-        scrollPane.setVbarPolicy(ScrollBarPolicy.AS_NEEDED);
-        scrollPane.setStyle("-fx-background-color:transparent;");
-        GridPane.setHgrow(scrollPane, Priority.ALWAYS);
-        GridPane.setVgrow(scrollPane, Priority.ALWAYS);
+    public ThumbnailsPane(Selection selection, JobExecutor jobExecutor, ImageProcessingExecutor imageProcessingExecutor, ImageTigerPreferences preferences) {
 
         int widthAndHeightDefault = 50;
         IntegerProperty widthAndHeightProperty = preferences.createIntegerProperty("fileThumbnails.widthAndHeight", widthAndHeightDefault);
 
+        boolean embeddedThumbnailsEnabled = preferences.createObjectProperty("fileThumbnails.embeddedThumbnails", Boolean.TRUE, Boolean::valueOf, String::valueOf).getValue();
+        IntegerProperty cacheSizeMegabytesProperty = preferences.createIntegerProperty("fileThumbnails.cacheSizeMegabytes", 256);
+        ThumbnailCache thumbnailCache = new ThumbnailCache(cacheSizeMegabytesProperty.longValue() * 1024L * 1024L);
+        cacheSizeMegabytesProperty.addListener((o, oldValue, newValue) -> thumbnailCache.setMaxBytes(newValue.longValue() * 1024L * 1024L));
+        boolean storeEnabled = preferences.createObjectProperty("fileThumbnails.storeEnabled", Boolean.TRUE, Boolean::valueOf, String::valueOf).getValue();
+        long storeSizeBytes = preferences.createIntegerProperty("fileThumbnails.storeSizeMegabytes", 1024).longValue() * 1024L * 1024L;
+        ThumbnailStore thumbnailStore = storeEnabled ? new ThumbnailStore(preferences.getStorageDirectory().resolve("thumbnails"), storeSizeBytes, imageProcessingExecutor.getExecutor(ImageProcessingWorkload.FILES)) : null;
+        ThumbnailImageLoader thumbnailImageLoader = new ThumbnailImageLoader(embeddedThumbnailsEnabled, thumbnailCache, thumbnailStore);
+        ThumbnailScheduler thumbnailScheduler = new ThumbnailScheduler(imageProcessingExecutor.getExecutor(ImageProcessingWorkload.THUMBNAILS), imageProcessingExecutor.getQuota(ImageProcessingWorkload.THUMBNAILS));
+
         Slider widthAndHeightSlider = new Slider(10, 500, widthAndHeightProperty.getValue());
         widthAndHeightSlider.setFocusTraversable(false);
         widthAndHeightSlider.setPadding(new Insets(0, 0, 0, 10));
         widthAndHeightSlider.valueProperty().bindBidirectional(widthAndHeightProperty);
-        flowPane.widthProperty().addListener((o, oldValue, newValue) -> {
+
+        // The thumbnails are only rendered again once the size has settled, which is when the slider isn't dragged
+        // any more and no further change has been made for a short moment
+        IntegerProperty renderedWidthAndHeightProperty = new SimpleIntegerProperty(widthAndHeightProperty.getValue());
+        PauseTransition renderDelayTransition = new PauseTransition(Duration.millis(250));
+        renderDelayTransition.setOnFinished(event -> {
+            if (!widthAndHeightSlider.isValueChanging()) {
+                renderedWidthAndHeightProperty.setValue(widthAndHeightProperty.getValue());
+            }
+        });
+        widthAndHeightProperty.addListener((o, oldValue, newValue) -> renderDelayTransition.playFromStart());
+        widthAndHeightSlider.valueChangingProperty().addListener((o, oldValue, newValue) -> {
+            if (!newValue) {
+                renderDelayTransition.playFromStart();
+            }
+        });
+
+        ThumbnailGridView gridView = new ThumbnailGridView(selection, widthAndHeightProperty, renderedWidthAndHeightProperty, thumbnailImageLoader, thumbnailScheduler);
+        GridPane.setHgrow(gridView, Priority.ALWAYS);
+        GridPane.setVgrow(gridView, Priority.ALWAYS);
+        gridView.widthProperty().addListener((o, oldValue, newValue) -> {
             if (newValue.intValue() > 0) {
-                widthAndHeightSlider.setMax(newValue.intValue() - 30);
+                widthAndHeightSlider.setMax(newValue.intValue() - 50);
             }
         });
 
@@ -76,30 +91,21 @@ public class ThumbnailsPane extends GridPane {
 
         Separator separatorPane = new Separator();
 
-        this.add(scrollPane, 0, 0, 1, 1);
+        this.add(gridView, 0, 0, 1, 1);
         this.add(separatorPane, 0, 1, 1, 1);
         this.add(settingsPane, 0, 2, 1, 1);
 
-        this.setOnContextMenuRequested(new ThumbnailsPaneContextMenuEventHandler(this, selection, jobExecutor, preferences));
-
-        Executor thumnailsScalingExecutorTarget = Executors.newFixedThreadPool(5);
-        selection.getAvailableImageFiles().addListener((ListChangeListener.Change<? extends ImageFile> change) -> {
-
-            File selectedDirectory = selection.getSelectedDirectory().getValue();
-            Executor thumnailsScalingExecutor = runnable -> {
-                if (Objects.equals(selectedDirectory, selection.getSelectedDirectory().getValue())) {
-                    thumnailsScalingExecutorTarget.execute(runnable);
-                }
-            };
-
-            List<ThumbnailPane> thumbnailPanes = change.getList().stream()
-                .map(imageFile -> new ThumbnailPane(selection, imageFile, widthAndHeightProperty, thumnailsScalingExecutor))
-                .toList();
-
-            Platform.runLater(() -> flowPane.getChildren().setAll(thumbnailPanes));
-
+        // The statistics are written whenever another directory is selected, which gives an overview about how well
+        // the thumbnails of the previous directory could be served
+        selection.getSelectedDirectory().addListener((o, oldValue, newValue) -> {
+            if (log.isDebugEnabled()) {
+                log.debug("Thumbnail cache statistics: {}", thumbnailCache);
+                log.debug("Thumbnail scheduler statistics: {}", thumbnailScheduler);
+            }
         });
 
+        this.setOnContextMenuRequested(new ThumbnailsPaneContextMenuEventHandler(this, selection, jobExecutor, imageProcessingExecutor, preferences));
+
     }
 
 }
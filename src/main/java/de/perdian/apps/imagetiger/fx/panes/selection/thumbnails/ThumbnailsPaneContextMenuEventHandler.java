@@ -21,6 +21,7 @@ import org.kordamp.ikonli.materialdesign2.MaterialDesignF;
 import de.perdian.apps.imagetiger.fx.ImageTigerPreferences;
 import de.perdian.apps.imagetiger.fx.model.selection.Selection;
 import de.perdian.apps.imagetiger.fx.panes.selection.batchupdate.BatchUpdateDialog;
+import de.perdian.apps.imagetiger.fx.support.executors.ImageProcessingExecutor;
 import de.perdian.apps.imagetiger.fx.support.jobs.JobExecutor;
 import javafx.event.EventHandler;
 import javafx.scene.Node;
@@ -34,12 +35,14 @@ class ThumbnailsPaneContextMenuEventHandler implements EventHandler<ContextMenuE
     private Node parentNode = null;
     private Selection selection = null;
     private JobExecutor jobExecutor = null;
+    private ImageProcessingExecutor imageProcessingExecutor = null;
     private ImageTigerPreferences preferences = null;
 
-    ThumbnailsPaneContextMenuEventHandler(Node parentNode, Selection selection, JobExecutor jobExecutor, ImageTigerPreferences preferences) {
+    ThumbnailsPaneContextMenuEventHandler(Node parentNode, Selection selection, JobExecutor jobExecutor, ImageProcessingExecutor imageProcessingExecutor, ImageTigerPreferences preferences) {
         this.setParentNode(parentNode);
         this.setSelection(selection);
         this.setJobExecutor(jobExecutor);
+        this.setImageProcessingExecutor(imageProcessingExecutor);
         this.setPreferences(preferences);
     }
 
@@ -47,7 +50,7 @@ class ThumbnailsPaneContextMenuEventHandler implements EventHandler<ContextMenuE
     public void handle(ContextMenuEvent event) {
 
         MenuItem batchUpdateMenuItem = new MenuItem("Batch update", new FontIcon(MaterialDesignF.FOLDER_TABLE_OUTLINE));
-        batchUpdateMenuItem.setOnAction(e -> new BatchUpdateDialog(this.getParentNode().getScene().getWindow(), this.getSelection(), this.getJobExecutor(), this.getPreferences()).show());
+        batchUpdateMenuItem.setOnAction(e -> new BatchUpdateDialog(this.getParentNode().getScene().getWindow(), this.getSelection(), this.getJobExecutor(), this.getImageProcessingExecutor(), this.getPreferences()).show());
 
         Window ownerWindow = this.getParentNode().getScene().getWindow();
         ContextMenu contextMenu = new ContextMenu();
@@ -77,6 +80,13 @@ class ThumbnailsPaneContextMenuEventHandler implements EventHandler<ContextMenuE
         this.jobExecutor = jobExecutor;
     }
 
+    private ImageProcessingExecutor getImageProcessingExecutor() {
+        return this.imageProcessingExecutor;
+    }
+    private void setImageProcessingExecutor(ImageProcessingExecutor imageProcessingExecutor) {
+        this.imageProcessingExecutor = imageProcessingExecutor;
+    }
+
     private ImageTigerPreferences getPreferences() {
         return this.preferences;
     }
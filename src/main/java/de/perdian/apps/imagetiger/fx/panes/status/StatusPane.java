@@ -15,6 +15,12 @@
  */
 package de.perdian.apps.imagetiger.fx.panes.status;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
 import org.kordamp.ikonli.javafx.FontIcon;
 import org.kordamp.ikonli.materialdesign2.MaterialDesignS;
 
@@ -41,6 +47,7 @@ public class StatusPane extends GridPane implements JobListener {
     private ProgressBar progressBar = null;
     private Button cancelButton = null;
     private JobExecutor jobExecutor = null;
+    private Map<Job, JobProgress> jobProgresses = new LinkedHashMap<>();
 
     public StatusPane(JobExecutor jobExecutor) {
 
@@ -82,40 +89,75 @@ public class StatusPane extends GridPane implements JobListener {
     @Override
     public void jobStarted(Job job) {
         Platform.runLater(() -> {
-            this.getProgressBar().setProgress(ProgressBar.INDETERMINATE_PROGRESS);
-            this.getProgressBar().setDisable(false);
-            this.getCancelButton().setDisable(false);
+            this.getJobProgresses().put(job, new JobProgress());
+            this.updateProgress();
         });
     }
 
     @Override
     public void jobProgress(Job job, String progressMessage, Integer progressStep, Integer totalProgressSteps) {
         Platform.runLater(() -> {
+
+            // Re-insert the progress so that the job with the most recent progress is always the last one in the map
+            JobProgress jobProgress = Optional.ofNullable(this.getJobProgresses().remove(job)).orElseGet(JobProgress::new);
+            jobProgress.message = progressMessage;
             if (progressStep != null && totalProgressSteps != null) {
                 if (progressStep.intValue() < 0) {
-                    this.getProgressBar().setProgress(-1d);
+                    jobProgress.progress = -1d;
                 } else  if (totalProgressSteps.intValue() == 0) {
-                    this.getProgressBar().setProgress(0d);
+                    jobProgress.progress = 0d;
                 } else {
-                    this.getProgressBar().setProgress((1d / totalProgressSteps) * (progressStep + 1));
+                    jobProgress.progress = (1d / totalProgressSteps) * (progressStep + 1);
                 }
             }
-            this.getProgressLabel().setText(progressMessage);
+            this.getJobProgresses().put(job, jobProgress);
+            this.updateProgress();
+
         });
     }
 
     @Override
     public void jobCompleted(Job job, boolean otherJobsActive) {
-        if (!otherJobsActive) {
-            Platform.runLater(() -> {
-                this.getProgressLabel().setText(null);
-                this.getProgressBar().setDisable(true);
-                this.getProgressBar().setProgress(0);
-                this.getCancelButton().setDisable(true);
-            });
+        Platform.runLater(() -> {
+            this.getJobProgresses().remove(job);
+            this.updateProgress();
+        });
+    }
+
+    /**
+     * Shows the aggregated progress of all running jobs. The progress bar shows the average progress of all jobs that
+     * reported a progress and the label shows the most recent message.
+     */
+    private void updateProgress() {
+        if (this.getJobProgresses().isEmpty()) {
+            this.getProgressLabel().setText(null);
+            this.getProgressBar().setDisable(true);
+            this.getProgressBar().setProgress(0);
+            this.getCancelButton().setDisable(true);
+        } else {
+
+            List<JobProgress> jobProgresses = new ArrayList<>(this.getJobProgresses().values());
+            double averageProgress = jobProgresses.stream().filter(jobProgress -> jobProgress.progress >= 0).mapToDouble(jobProgress -> jobProgress.progress).average().orElse(ProgressBar.INDETERMINATE_PROGRESS);
+            String latestMessage = null;
+            for (int i=jobProgresses.size() - 1; i >= 0 && latestMessage == null; i--) {
+                latestMessage = jobProgresses.get(i).message;
+            }
+
+            this.getProgressBar().setDisable(false);
+            this.getProgressBar().setProgress(averageProgress);
+            this.getProgressLabel().setText(jobProgresses.size() > 1 && latestMessage != null ? "[" + jobProgresses.size() + " jobs] " + latestMessage : latestMessage);
+            this.getCancelButton().setDisable(false);
+
         }
     }
 
+    private static class JobProgress {
+
+        private String message = null;
+        private double progress = -1d;
+
+    }
+
     private Label getProgressLabel() {
         return this.progressLabel;
     }
@@ -137,6 +179,10 @@ public class StatusPane extends GridPane implements JobListener {
         this.cancelButton = cancelButton;
     }
 
+    private Map<Job, JobProgress> getJobProgresses() {
+        return this.jobProgresses;
+    }
+
     private JobExecutor getJobExecutor() {
         return this.jobExecutor;
     }
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.support.executors;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Application wide executor for all CPU and I/O intensive work on images, like decoding thumbnails or parsing the
+ * metadata of image files. All workloads share a single pool of daemon threads but each workload is limited to a quota
+ * of concurrently running tasks. Tasks exceeding the quota are queued per workload and once that queue is full the
+ * submitting thread has to execute the task itself, which slows down producers that are faster than the pool.
+ * <p>
+ * In the {@link ImageProcessingMode#VIRTUAL_THREADS} mode tasks of I/O bound workloads are executed within a virtual
+ * thread per task instead, so that slow file systems can have many outstanding reads at the same time.
+ *
+ * @author Christian Seifert
+ */
+
+public class ImageProcessingExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageProcessingExecutor.class);
+
+    private ExecutorService threadPool = null;
+    private ExecutorService virtualThreadExecutor = null;
+    private Map<ImageProcessingWorkload, QuotaExecutor> workloadExecutors = null;
+
+    public ImageProcessingExecutor(int threads, int queueCapacity) {
+        this(threads, queueCapacity, ImageProcessingMode.PLATFORM_THREADS, 0);
+    }
+
+    /**
+     * Creates a new executor
+     *
+     * @param threads
+     *     the number of platform threads shared by all workloads
+     * @param queueCapacity
+     *     the maximum number of tasks per workload waiting for a thread before the caller has to execute a task itself
+     * @param mode
+     *     the mode in which I/O bound workloads are executed
+     * @param maxOpenFiles
+     *     the maximum number of I/O bound tasks running concurrently in the {@link ImageProcessingMode#VIRTUAL_THREADS}
+     *     mode
+     */
+    public ImageProcessingExecutor(int threads, int queueCapacity, ImageProcessingMode mode, int maxOpenFiles) {
+        int poolThreads = Math.max(1, threads);
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(poolThreads, poolThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new ImageProcessingThreadFactory());
+        threadPool.allowCoreThreadTimeOut(true);
+        ExecutorService virtualThreadExecutor = mode == ImageProcessingMode.VIRTUAL_THREADS ? ImageProcessingExecutor.createVirtualThreadExecutor() : null;
+        Map<ImageProcessingWorkload, QuotaExecutor> workloadExecutors = new EnumMap<>(ImageProcessingWorkload.class);
+        for (ImageProcessingWorkload workload : ImageProcessingWorkload.values()) {
+            if (virtualThreadExecutor != null && workload.isIoBound()) {
+                workloadExecutors.put(workload, new VirtualThreadWorkloadExecutor(workload, Math.max(1, maxOpenFiles), virtualThreadExecutor));
+            } else {
+                int workloadQuota = Math.max(1, Math.min(poolThreads, (int)Math.round(poolThreads * workload.getMaxThreadsShare())));
+                workloadExecutors.put(workload, new WorkloadExecutor(workload, workloadQuota, Math.max(1, queueCapacity), threadPool));
+            }
+        }
+        log.debug("Created image processing executor with {} threads [{}]", poolThreads, workloadExecutors.values());
+        this.setThreadPool(threadPool);
+        this.setVirtualThreadExecutor(virtualThreadExecutor);
+        this.setWorkloadExecutors(workloadExecutors);
+    }
+
+    @Override
+    public String toString() {
+        return "ImageProcessingExecutor" + this.getWorkloadExecutors().values();
+    }
+
+    /**
+     * Gets the executor through which tasks of the given workload are to be submitted
+     */
+    public Executor getExecutor(ImageProcessingWorkload workload) {
+        return this.getWorkloadExecutors().get(workload);
+    }
+
+    /**
+     * Gets the number of tasks of the given workload that may run concurrently
+     */
+    public int getQuota(ImageProcessingWorkload workload) {
+        return this.getWorkloadExecutors().get(workload).getQuota();
+    }
+
+    public void shutdown() {
+        this.getThreadPool().shutdownNow();
+        if (this.getVirtualThreadExecutor() != null) {
+            this.getVirtualThreadExecutor().shutdownNow();
+        }
+    }
+
+    /**
+     * Creates the executor for virtual threads. The executor is looked up reflectively, as virtual threads are only
+     * available in more recent Java versions than the one the application is compiled against.
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            log.warn("Virtual threads not available in Java runtime {}, using platform threads instead", Runtime.version());
+            return null;
+        }
+    }
+
+    private interface QuotaExecutor extends Executor {
+
+        int getQuota();
+
+    }
+
+    private static class VirtualThreadWorkloadExecutor implements QuotaExecutor {
+
+        private ImageProcessingWorkload workload = null;
+        private Semaphore openFilesSemaphore = null;
+        private int quota = 0;
+        private ExecutorService virtualThreadExecutor = null;
+
+        private VirtualThreadWorkloadExecutor(ImageProcessingWorkload workload, int quota, ExecutorService virtualThreadExecutor) {
+            this.workload = workload;
+            this.openFilesSemaphore = new Semaphore(quota);
+            this.quota = quota;
+            this.virtualThreadExecutor = virtualThreadExecutor;
+        }
+
+        @Override
+        public String toString() {
+            return this.workload + "[virtualThreads, quota=" + this.quota + ", running=" + (this.quota - this.openFilesSemaphore.availablePermits()) + "]";
+        }
+
+        @Override
+        public int getQuota() {
+            return this.quota;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            this.virtualThreadExecutor.execute(() -> {
+                this.openFilesSemaphore.acquireUninterruptibly();
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.warn("Error occured while executing {} task", this.workload, e);
+                } finally {
+                    this.openFilesSemaphore.release();
+                }
+            });
+        }
+
+    }
+
+    private static class WorkloadExecutor implements QuotaExecutor {
+
+        private ImageProcessingWorkload workload = null;
+        private int quota = 0;
+        private int queueCapacity = 0;
+        private Executor threadPool = null;
+        private Queue<Runnable> pendingTasks = new ArrayDeque<>();
+        private int runningTasks = 0;
+
+        private WorkloadExecutor(ImageProcessingWorkload workload, int quota, int queueCapacity, Executor threadPool) {
+            this.workload = workload;
+            this.quota = quota;
+            this.queueCapacity = queueCapacity;
+            this.threadPool = threadPool;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return this.workload + "[quota=" + this.quota + ", running=" + this.runningTasks + ", pending=" + this.pendingTasks.size() + "]";
+        }
+
+        @Override
+        public int getQuota() {
+            return this.quota;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            boolean startTask = false;
+            synchronized (this) {
+                if (this.runningTasks < this.quota) {
+                    this.runningTasks++;
+                    startTask = true;
+                } else if (this.pendingTasks.size() < this.queueCapacity) {
+                    this.pendingTasks.add(task);
+                    return;
+                }
+            }
+            if (startTask) {
+                this.threadPool.execute(() -> this.executeTasks(task));
+            } else {
+                task.run(); // Queue is full, so the caller has to do the work itself
+            }
+        }
+
+        private void executeTasks(Runnable firstTask) {
+            for (Runnable nextTask = firstTask; nextTask != null; nextTask = this.pollNextTask()) {
+                try {
+                    nextTask.run();
+                } catch (Exception e) {
+                    log.warn("Error occured while executing {} task", this.workload, e);
+                }
+            }
+        }
+
+        private synchronized Runnable pollNextTask() {
+            Runnable nextTask = this.pendingTasks.poll();
+            if (nextTask == null) {
+                this.runningTasks--;
+            }
+            return nextTask;
+        }
+
+    }
+
+    private static class ImageProcessingThreadFactory implements ThreadFactory {
+
+        private AtomicInteger threadCounter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "imagetiger-processing-" + this.threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+    private ExecutorService getThreadPool() {
+        return this.threadPool;
+    }
+    private void setThreadPool(ExecutorService threadPool) {
+        this.threadPool = threadPool;
+    }
+
+    private ExecutorService getVirtualThreadExecutor() {
+        return this.virtualThreadExecutor;
+    }
+    private void setVirtualThreadExecutor(ExecutorService virtualThreadExecutor) {
+        this.virtualThreadExecutor = virtualThreadExecutor;
+    }
+
+    private Map<ImageProcessingWorkload, QuotaExecutor> getWorkloadExecutors() {
+        return this.workloadExecutors;
+    }
+    private void setWorkloadExecutors(Map<ImageProcessingWorkload, QuotaExecutor> workloadExecutors) {
+        this.workloadExecutors = workloadExecutors;
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.support.executors;
+
+/**
+ * Defines how the {@link ImageProcessingExecutor} executes the tasks of I/O bound workloads
+ *
+ * @author Christian Seifert
+ */
+
+public enum ImageProcessingMode {
+
+    /**
+     * All workloads share the pool of platform threads
+     */
+    PLATFORM_THREADS,
+
+    /**
+     * Tasks of I/O bound workloads are executed within a virtual thread per task, limited only by the number of files
+     * that may be opened concurrently. Requires a Java runtime supporting virtual threads, otherwise the platform
+     * threads will be used.
+     */
+    VIRTUAL_THREADS;
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.support.executors;
+
+/**
+ * The different kinds of work executed by the {@link ImageProcessingExecutor}. Each workload may only occupy a share
+ * of all available threads, so that e.g. loading the metadata of a huge directory cannot starve the thumbnails.
+ *
+ * @author Christian Seifert
+ */
+
+public enum ImageProcessingWorkload {
+
+    THUMBNAILS(0.5d, false),
+    METADATA(0.75d, true),
+    BATCH(0.5d, false),
+    FILES(0.5d, true);
+
+    private double maxThreadsShare = 1d;
+    private boolean ioBound = false;
+
+    private ImageProcessingWorkload(double maxThreadsShare, boolean ioBound) {
+        this.setMaxThreadsShare(maxThreadsShare);
+        this.setIoBound(ioBound);
+    }
+
+    double getMaxThreadsShare() {
+        return this.maxThreadsShare;
+    }
+    private void setMaxThreadsShare(double maxThreadsShare) {
+        this.maxThreadsShare = maxThreadsShare;
+    }
+
+    /**
+     * Checks whether the tasks of this workload spend most of their time waiting for the file system
+     */
+    boolean isIoBound() {
+        return this.ioBound;
+    }
+    private void setIoBound(boolean ioBound) {
+        this.ioBound = ioBound;
+    }
+
+}
@@ -31,4 +31,18 @@ public interface Job {
      */
     void execute(JobContext context);
 
+    /**
+     * Gets the class of the job, which decides which other jobs are cancelled when the job is started
+     */
+    default JobClass getJobClass() {
+        return JobClass.COMPUTE;
+    }
+
+    /**
+     * Gets the priority in which the job is started if it has to wait for a free thread
+     */
+    default JobPriority getJobPriority() {
+        return this.getJobClass().getDefaultPriority();
+    }
+
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.support.jobs;
+
+/**
+ * The class of a job. Starting a new job only cancels the currently running job of the same class, so that jobs of
+ * different classes (e.g. saving files while a directory is loaded) can be executed concurrently.
+ *
+ * @author Christian Seifert
+ */
+
+public enum JobClass {
+
+    LOAD(JobPriority.HIGH),
+    SAVE(JobPriority.HIGH),
+    COMPUTE(JobPriority.NORMAL),
+    BACKGROUND(JobPriority.LOW);
+
+    private JobPriority defaultPriority = null;
+
+    private JobClass(JobPriority defaultPriority) {
+        this.setDefaultPriority(defaultPriority);
+    }
+
+    public JobPriority getDefaultPriority() {
+        return this.defaultPriority;
+    }
+    private void setDefaultPriority(JobPriority defaultPriority) {
+        this.defaultPriority = defaultPriority;
+    }
+
+}
@@ -77,9 +77,8 @@ public interface JobContext {
     public void updateProgress(String message, Integer step, Integer totalSteps);
 
     /**
-     * Checks if the current job is active, meaning whether it has overall
-     * control over the GUI and is the main job whose progress is being
-     * displayed
+     * Checks if the current job is active, meaning whether it is the current
+     * job of its class and therefore a job whose progress is being displayed
      */
     public boolean isActive();
 
@@ -16,22 +16,22 @@
 package de.perdian.apps.imagetiger.fx.support.jobs;
 
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 
 class JobContextImpl implements JobContext {
 
-    private boolean cancelled = false;
+    private volatile boolean cancelled = false;
+    private volatile boolean active = true;
     private Job job = null;
+    private JobClass jobClass = null;
     private List<JobListener> listeners = null;
-    private long jobIndex = 0;
-    private AtomicLong jobCounter = null;
+    private JobProgressCoalescer progressCoalescer = null;
     private Throwable error = null;
 
-    JobContextImpl(Job job, AtomicLong jobCounter, List<JobListener> listeners) {
+    JobContextImpl(Job job, JobClass jobClass, List<JobListener> listeners, JobProgressCoalescer progressCoalescer) {
         this.setJob(job);
-        this.setJobIndex(jobCounter.incrementAndGet());
-        this.setJobCounter(jobCounter);
+        this.setJobClass(jobClass);
         this.setListeners(listeners);
+        this.setProgressCoalescer(progressCoalescer);
     }
 
     @Override
@@ -42,13 +42,19 @@ class JobContextImpl implements JobContext {
     @Override
     public void updateProgress(String message, Integer step, Integer totalSteps) {
         if(!this.isCancelled() && this.isActive()) {
-            this.getListeners().forEach(listener -> listener.jobProgress(this.getJob(), message, step, totalSteps));
+            this.getProgressCoalescer().updateProgress(message, step, totalSteps);
         }
     }
 
     @Override
     public boolean isActive() {
-        return this.getJobIndex() == this.getJobCounter().get();
+        return this.active;
+    }
+    void setActive(boolean active) {
+        this.active = active;
+        if (!active) {
+            this.getProgressCoalescer().discard();
+        }
     }
 
     @Override
@@ -81,18 +87,18 @@ class JobContextImpl implements JobContext {
         this.listeners = listeners;
     }
 
-    AtomicLong getJobCounter() {
-        return this.jobCounter;
+    JobProgressCoalescer getProgressCoalescer() {
+        return this.progressCoalescer;
     }
-    void setJobCounter(AtomicLong jobCounter) {
-        this.jobCounter = jobCounter;
+    void setProgressCoalescer(JobProgressCoalescer progressCoalescer) {
+        this.progressCoalescer = progressCoalescer;
     }
 
-    long getJobIndex() {
-        return this.jobIndex;
+    JobClass getJobClass() {
+        return this.jobClass;
     }
-    void setJobIndex(long jobIndex) {
-        this.jobIndex = jobIndex;
+    void setJobClass(JobClass jobClass) {
+        this.jobClass = jobClass;
     }
 
 }
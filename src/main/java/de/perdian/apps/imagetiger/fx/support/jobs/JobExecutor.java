@@ -15,12 +15,19 @@
  */
 package de.perdian.apps.imagetiger.fx.support.jobs;
 
+import java.util.EnumMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
@@ -34,21 +41,48 @@ import javafx.beans.property.SimpleBooleanProperty;
 public class JobExecutor {
 
     private static final Logger log = LoggerFactory.getLogger(JobExecutor.class);
+    private static final long DEFAULT_PROGRESS_INTERVAL_MILLIS = 100;
     private List<JobListener> listeners = new CopyOnWriteArrayList<>();
     private ExecutorService executor = null;
+    private ScheduledExecutorService progressScheduler = null;
+    private long progressIntervalMillis = 0;
     private AtomicLong jobCounter = new AtomicLong();
-    private JobContextImpl currentJobContext = null;
+    private Map<JobClass, JobContextImpl> currentJobContexts = new EnumMap<>(JobClass.class);
     private BooleanProperty busy = null;
 
     public JobExecutor() {
-        this(Executors.newCachedThreadPool());
+        this(JobClass.values().length * 2, DEFAULT_PROGRESS_INTERVAL_MILLIS);
     }
 
-    public JobExecutor(ExecutorService executorService) {
+    /**
+     * Creates a new executor
+     *
+     * @param maxConcurrentJobs
+     *     the number of jobs that may run concurrently. Additional jobs will wait until one of the running jobs has
+     *     been completed and are started in the order of their priority
+     * @param progressIntervalMillis
+     *     the minimum time between two progress notifications of a single job
+     *     sent to the listeners
+     */
+    public JobExecutor(int maxConcurrentJobs, long progressIntervalMillis) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 60, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "imagetiger-job-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        ScheduledExecutorService progressScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "imagetiger-job-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
         BooleanProperty busy = new SimpleBooleanProperty();
         this.addListener(new UpdateBusyWhileJobRunningJobListener(busy));
         this.setBusy(busy);
-        this.setExecutor(executorService);
+        this.setExecutor(executor);
+        this.setProgressScheduler(progressScheduler);
+        this.setProgressIntervalMillis(progressIntervalMillis);
     }
 
     /**
@@ -59,17 +93,48 @@ public class JobExecutor {
      * @param job
      *     the job to be executed
      */
-    public synchronized Future<?> executeJob(Job job) {
+    public Future<?> executeJob(Job job) {
+        return this.executeJob(job, job.getJobClass(), job.getJobPriority());
+    }
 
-        // If we already have a job running, we need to make sure that it gets
-        // cancelled first
-        this.cancelCurrentJob();
+    /**
+     * Executes the given job as a job of the given class using the default
+     * priority of the class
+     *
+     * @param job
+     *     the job to be executed
+     * @param jobClass
+     *     the class of the job
+     */
+    public Future<?> executeJob(Job job, JobClass jobClass) {
+        return this.executeJob(job, jobClass, jobClass.getDefaultPriority());
+    }
 
-        JobContextImpl jobContext = new JobContextImpl(job, this.getJobCounter(), this.getListeners());
-        this.setCurrentJobContext(jobContext);
+    /**
+     * Executes the given job with a separate thread. Only the currently
+     * running job of the same class will be cancelled, jobs of all other
+     * classes continue to run
+     *
+     * @param job
+     *     the job to be executed
+     * @param jobClass
+     *     the class of the job
+     * @param jobPriority
+     *     the priority in which the job is started if it has to wait for a
+     *     free thread
+     */
+    public synchronized Future<?> executeJob(Job job, JobClass jobClass, JobPriority jobPriority) {
+
+        // If we already have a job of the same class running, we need to
+        // make sure that it gets cancelled first
+        this.cancelCurrentJob(jobClass);
+
+        JobProgressCoalescer progressCoalescer = new JobProgressCoalescer(job, this.getListeners(), this.getProgressScheduler(), this.getProgressIntervalMillis());
+        JobContextImpl jobContext = new JobContextImpl(job, jobClass, this.getListeners(), progressCoalescer);
+        this.getCurrentJobContexts().put(jobClass, jobContext);
 
-        log.trace("Executing job: {}", job);
-        return this.getExecutor().submit(() -> {
+        log.trace("Executing job: {} [class={}, priority={}]", job, jobClass, jobPriority);
+        JobFutureTask jobFutureTask = new JobFutureTask(() -> {
 
             this.getListeners().forEach(listener -> listener.jobStarted(job));
             try {
@@ -79,22 +144,76 @@ public class JobExecutor {
                 jobContext.setError(e);
             } finally {
 
-                this.getListeners().forEach(listener -> listener.jobCompleted(job, !jobContext.isActive()));
+                // Make sure the listeners know about the final state of the job before they're told that the job
+                // has been completed
+                if (!jobContext.isCancelled() && jobContext.isActive()) {
+                    progressCoalescer.close();
+                }
 
+                boolean otherJobsActive = false;
                 synchronized (this) {
-                    if (this.getCurrentJobContext() == jobContext) {
-                        this.setCurrentJobContext(null);
+                    if (this.getCurrentJobContexts().get(jobClass) == jobContext) {
+                        this.getCurrentJobContexts().remove(jobClass);
                     }
+                    jobContext.setActive(false);
+                    otherJobsActive = !this.getCurrentJobContexts().isEmpty();
+                }
+                for (JobListener listener : this.getListeners()) {
+                    listener.jobCompleted(job, otherJobsActive);
                 }
 
             }
 
-        });
+        }, jobPriority, this.getJobCounter().incrementAndGet());
+        this.getExecutor().execute(jobFutureTask);
+        return jobFutureTask;
 
     }
 
+    /**
+     * Cancels the currently running jobs of all classes
+     */
     public synchronized void cancelCurrentJob() {
-        Optional.ofNullable(this.getCurrentJobContext()).ifPresent(jobContext -> jobContext.setCancelled(true));
+        for (JobClass jobClass : JobClass.values()) {
+            this.cancelCurrentJob(jobClass);
+        }
+    }
+
+    /**
+     * Cancels the currently running job of the given class
+     */
+    public synchronized void cancelCurrentJob(JobClass jobClass) {
+        JobContextImpl jobContext = this.getCurrentJobContexts().remove(jobClass);
+        if (jobContext != null) {
+            jobContext.setCancelled(true);
+            jobContext.setActive(false);
+        }
+    }
+
+    /**
+     * Checks whether a job of the given class is currently running
+     */
+    public synchronized boolean isActive(JobClass jobClass) {
+        return this.getCurrentJobContexts().containsKey(jobClass);
+    }
+
+    private static class JobFutureTask extends FutureTask<Void> implements Comparable<JobFutureTask> {
+
+        private JobPriority priority = null;
+        private long sequence = 0;
+
+        private JobFutureTask(Runnable runnable, JobPriority priority, long sequence) {
+            super(runnable, null);
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(JobFutureTask other) {
+            int priorityComparison = this.priority.compareTo(other.priority);
+            return priorityComparison != 0 ? priorityComparison : Long.compare(this.sequence, other.sequence);
+        }
+
     }
 
     private static class UpdateBusyWhileJobRunningJobListener implements JobListener {
@@ -150,6 +269,20 @@ public class JobExecutor {
         this.executor = executor;
     }
 
+    ScheduledExecutorService getProgressScheduler() {
+        return this.progressScheduler;
+    }
+    void setProgressScheduler(ScheduledExecutorService progressScheduler) {
+        this.progressScheduler = progressScheduler;
+    }
+
+    long getProgressIntervalMillis() {
+        return this.progressIntervalMillis;
+    }
+    void setProgressIntervalMillis(long progressIntervalMillis) {
+        this.progressIntervalMillis = progressIntervalMillis;
+    }
+
     AtomicLong getJobCounter() {
         return this.jobCounter;
     }
@@ -157,11 +290,11 @@ public class JobExecutor {
         this.jobCounter = jobCounter;
     }
 
-    JobContextImpl getCurrentJobContext() {
-        return this.currentJobContext;
+    Map<JobClass, JobContextImpl> getCurrentJobContexts() {
+        return this.currentJobContexts;
     }
-    void setCurrentJobContext(JobContextImpl currentJobContext) {
-        this.currentJobContext = currentJobContext;
+    void setCurrentJobContexts(Map<JobClass, JobContextImpl> currentJobContexts) {
+        this.currentJobContexts = currentJobContexts;
     }
 
 }
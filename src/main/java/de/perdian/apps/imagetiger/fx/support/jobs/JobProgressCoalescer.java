@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.support.jobs;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sits between a job and the listeners interested in its progress. Jobs may report their progress for every single
+ * file they process, but the listeners only need to know about the most recent state. Therefore only the latest
+ * progress is kept and handed over to the listeners at most once within the configured interval. The last state is
+ * always published when the job is completed.
+ *
+ * @author Christian Seifert
+ */
+
+class JobProgressCoalescer {
+
+    private Job job = null;
+    private List<JobListener> listeners = null;
+    private ScheduledExecutorService scheduler = null;
+    private long intervalMillis = 0;
+    private Progress pendingProgress = null;
+    private boolean publishScheduled = false;
+    private boolean closed = false;
+    private long lastPublishMillis = 0;
+
+    JobProgressCoalescer(Job job, List<JobListener> listeners, ScheduledExecutorService scheduler, long intervalMillis) {
+        this.job = job;
+        this.listeners = listeners;
+        this.scheduler = scheduler;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Remembers the given progress and makes sure it will be published once the interval has passed
+     */
+    synchronized void updateProgress(String message, Integer step, Integer totalSteps) {
+        if (!this.closed) {
+            this.pendingProgress = new Progress(message, step, totalSteps);
+            if (!this.publishScheduled) {
+                long delayMillis = Math.max(0, this.lastPublishMillis + this.intervalMillis - System.currentTimeMillis());
+                this.publishScheduled = true;
+                this.scheduler.schedule(this::publishProgress, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Publishes the pending progress (if any) and makes sure that no further progress is published afterwards
+     */
+    synchronized void close() {
+        this.publishProgress();
+        this.closed = true;
+    }
+
+    /**
+     * Discards the pending progress (if any) and makes sure that no further progress is published afterwards
+     */
+    synchronized void discard() {
+        this.pendingProgress = null;
+        this.closed = true;
+    }
+
+    private synchronized void publishProgress() {
+        Progress progress = this.pendingProgress;
+        this.pendingProgress = null;
+        this.publishScheduled = false;
+        if (progress != null && !this.closed) {
+            this.lastPublishMillis = System.currentTimeMillis();
+            this.listeners.forEach(listener -> listener.jobProgress(this.job, progress.message, progress.step, progress.totalSteps));
+        }
+    }
+
+    private static class Progress {
+
+        private String message = null;
+        private Integer step = null;
+        private Integer totalSteps = null;
+
+        private Progress(String message, Integer step, Integer totalSteps) {
+            this.message = message;
+            this.step = step;
+            this.totalSteps = totalSteps;
+        }
+
+    }
+
+}
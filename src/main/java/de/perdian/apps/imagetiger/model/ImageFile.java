@@ -16,17 +16,38 @@
 package de.perdian.apps.imagetiger.model;
 
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import de.perdian.apps.imagetiger.model.support.ChangeTrackingProperty;
 import javafx.beans.property.ReadOnlyBooleanProperty;
 
 public interface ImageFile {
 
+    File getOsFile();
+    File getNewOsFile();
+
     BufferedImage loadBufferedImage() throws Exception;
 
+    /**
+     * Loads a reduced resolution version of the image that is suitable to be scaled down into a thumbnail of the given
+     * size. The returned image will be at least as large as required to fill the given bounds (keeping the aspect
+     * ratio) but will usually be much smaller than the original image, as only a subset of the source pixels is
+     * decoded.
+     */
+    BufferedImage loadThumbnailImage(int width, int height) throws Exception;
+
+    /**
+     * Loads the thumbnail image that the camera has embedded into the metadata of the image file
+     *
+     * @return
+     *     the embedded thumbnail or {@code null} if the file doesn't contain an embedded thumbnail
+     */
+    BufferedImage loadEmbeddedThumbnailImage() throws Exception;
+
     ReadOnlyBooleanProperty getDirty();
 
     ChangeTrackingProperty<String> getFileName();
@@ -39,7 +60,13 @@ public interface ImageFile {
     ChangeTrackingProperty<String> getProperty(ImageDataKey key);
     Map<ImageDataKey, ChangeTrackingProperty<String>> getProperties();
 
-    boolean updateOsFile() throws IOException;
+    boolean updateOsFile(File movedOsFile, Consumer<Runnable> stateResetConsumer) throws IOException;
+
+    /**
+     * Takes over the values of a file that has been changed on disk from a freshly parsed instance of the same file.
+     * Changes that have been made but not yet been saved are kept.
+     */
+    void updateOriginalValues(ImageFile reloadedImageFile);
 
     void openInNativeViewer();
 
@@ -17,11 +17,21 @@ package de.perdian.apps.imagetiger.model;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
 
 public interface ImageFileParser {
 
     boolean isPotentialImageFile(File file);
 
-    ImageFile parseFile(File file) throws IOException;
+    default ImageFile parseFile(File file) throws IOException {
+        return this.parseFile(file, Files.readAttributes(file.toPath(), BasicFileAttributes.class));
+    }
+
+    /**
+     * Parses the given file using the attributes that have already been read from the file system, so that the
+     * parser doesn't need to access the file system again for the basic information about the file
+     */
+    ImageFile parseFile(File file, BasicFileAttributes fileAttributes) throws IOException;
 
 }
@@ -17,20 +17,28 @@ package de.perdian.apps.imagetiger.model.impl;
 
 import java.awt.Desktop;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -40,7 +48,6 @@ import de.perdian.apps.imagetiger.model.ImageDataKey;
 import de.perdian.apps.imagetiger.model.ImageFile;
 import de.perdian.apps.imagetiger.model.ImageTigerConstants;
 import de.perdian.apps.imagetiger.model.support.ChangeTrackingProperty;
-import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ReadOnlyBooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -50,6 +57,7 @@ import javafx.beans.value.ObservableBooleanValue;
 class DefaultImageFile implements ImageFile {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultImageFile.class);
+    private static final ImageHeaderMetadataReader HEADER_METADATA_READER = new ImageHeaderMetadataReader();
 
     private File osFile = null;
     private ReadOnlyBooleanProperty dirty = null;
@@ -61,7 +69,7 @@ class DefaultImageFile implements ImageFile {
     private ChangeTrackingProperty<String> fileDateLocalZone = null;
     private Map<ImageDataKey, ChangeTrackingProperty<String>> properties = null;
 
-    DefaultImageFile(File osFile) throws IOException {
+    DefaultImageFile(File osFile, BasicFileAttributes osFileAttributes) {
 
         String fileName = osFile.getName();
         int fileExtensionSeparatorIndex = fileName.lastIndexOf(".");
@@ -82,7 +90,7 @@ class DefaultImageFile implements ImageFile {
         fileNameWithoutExtensionProperty.getNewValue().addListener(fileNameChangeListener);
         fileExtensionProperty.getNewValue().addListener(fileNameChangeListener);
 
-        Instant fileDate = Files.getLastModifiedTime(osFile.toPath()).toInstant();
+        Instant fileDate = osFileAttributes.lastModifiedTime().toInstant();
         ZoneId fileDateZoneId = ZoneId.systemDefault();
         LocalDateTime fileDateLocal = fileDate.atZone(fileDateZoneId).toLocalDateTime();
 
@@ -148,40 +156,94 @@ class DefaultImageFile implements ImageFile {
     }
 
     @Override
-    public synchronized boolean updateOsFile() throws IOException {
+    public synchronized boolean updateOsFile(File movedOsFile, Consumer<Runnable> stateResetConsumer) throws IOException {
         boolean fileUpdated = false;
-        Instant osFileDate = Files.getLastModifiedTime(this.getOsFile().toPath()).toInstant();
+        if (!movedOsFile.equals(this.getOsFile())) {
+            this.setOsFile(movedOsFile);
+            fileUpdated = true;
+        }
         if (this.getFileName().getDirty().get()) {
             String newFileName = this.getFileName().getNewValue().getValue();
             int newFileExtensionSeparatorIndex = newFileName.lastIndexOf(".");
             String newFileNameWithoutExtension = newFileExtensionSeparatorIndex < 0 ? "" : newFileName.substring(0, newFileExtensionSeparatorIndex);
             String newFileExtension = newFileExtensionSeparatorIndex < 0 ? "" : newFileName.substring(newFileExtensionSeparatorIndex + 1);
-            File newOsFile = new File(this.getOsFile().getParentFile(), newFileName);
-            this.getOsFile().renameTo(newOsFile);
-            Platform.runLater(() -> {
+            stateResetConsumer.accept(() -> {
                 this.getFileNameWithoutExtension().resetValue(newFileNameWithoutExtension);
                 this.getFileExtension().resetValue(newFileExtension);
                 this.getFileName().resetValue(newFileName);
             });
-            fileUpdated = true;
-            this.setOsFile(newOsFile);
         }
+        Instant osFileDate = Files.getLastModifiedTime(this.getOsFile().toPath()).toInstant();
         Instant newFileDate = this.getFileDate().getNewValue().getValue();
         if (!newFileDate.equals(osFileDate)) {
-            this.getOsFile().setLastModified(newFileDate.toEpochMilli());
+            if (!this.getOsFile().setLastModified(newFileDate.toEpochMilli())) {
+                throw new IOException("Cannot update last modified date of file '" + this.getOsFile() + "'");
+            }
             fileUpdated = true;
-            Platform.runLater(() -> {
+        }
+        if (this.getFileDate().getDirty().get()) {
+            stateResetConsumer.accept(() -> {
                 this.getFileDate().resetValue(newFileDate);
             });
         }
         return fileUpdated;
     }
 
+    @Override
+    public File getNewOsFile() {
+        return new File(this.getOsFile().getParentFile(), this.getFileName().getNewValue().getValue());
+    }
+
     @Override
     public synchronized BufferedImage loadBufferedImage() throws Exception {
         return ImageIO.read(this.getOsFile());
     }
 
+    @Override
+    public synchronized BufferedImage loadThumbnailImage(int width, int height) throws Exception {
+        try (ImageInputStream imageStream = ImageIO.createImageInputStream(this.getOsFile())) {
+            Iterator<ImageReader> imageReaders = imageStream == null ? Collections.emptyIterator() : ImageIO.getImageReaders(imageStream);
+            if (!imageReaders.hasNext()) {
+                throw new IOException("Cannot find image reader for file: " + this.getOsFile());
+            }
+            ImageReader imageReader = imageReaders.next();
+            try {
+                imageReader.setInput(imageStream, true, true);
+
+                // We only decode every n-th pixel in both directions but still keep about twice the resolution of the
+                // requested thumbnail, so that the final scaling step has enough information for a smooth result
+                double sourceToTargetRatio = Math.max((double)imageReader.getWidth(0) / width, (double)imageReader.getHeight(0) / height);
+                int subsampling = Math.max(1, (int)(sourceToTargetRatio / 2));
+                ImageReadParam imageReadParam = imageReader.getDefaultReadParam();
+                imageReadParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return imageReader.read(0, imageReadParam);
+
+            } finally {
+                imageReader.dispose();
+            }
+        }
+    }
+
+    @Override
+    public synchronized BufferedImage loadEmbeddedThumbnailImage() throws Exception {
+        byte[] thumbnailBytes = HEADER_METADATA_READER.readExifThumbnail(this.getOsFile());
+        return thumbnailBytes == null ? null : ImageIO.read(new ByteArrayInputStream(thumbnailBytes));
+    }
+
+    @Override
+    public void updateOriginalValues(ImageFile reloadedImageFile) {
+
+        // The local representations of the file date are derived from the original file date, so updating it would
+        // replace a date that has been changed but not yet been saved
+        if (!this.getFileDate().getDirty().get()) {
+            this.getFileDate().resetValue(reloadedImageFile.getFileDate().getOriginalValue().getValue());
+        }
+        for (Map.Entry<ImageDataKey, ChangeTrackingProperty<String>> property : this.getProperties().entrySet()) {
+            property.getValue().updateOriginalValue(reloadedImageFile.getProperty(property.getKey()).getOriginalValue().getValue());
+        }
+
+    }
+
     @Override
     public void openInNativeViewer() {
         try {
@@ -196,7 +258,8 @@ class DefaultImageFile implements ImageFile {
         return this.getOsFile().getName();
     }
 
-    private File getOsFile() {
+    @Override
+    public File getOsFile() {
         return this.osFile;
     }
     private void setOsFile(File osFile) {
@@ -17,9 +17,12 @@ package de.perdian.apps.imagetiger.model.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
@@ -47,6 +50,25 @@ public class DefaultImageFileParser implements ImageFileParser {
 
     private static final Set<String> VALID_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif");
 
+    private ImageMetadataCache metadataCache = null;
+    private ImageHeaderMetadataReader headerMetadataReader = null;
+
+    public DefaultImageFileParser() {
+        this(null, false);
+    }
+
+    /**
+     * @param metadataCache
+     *     the cache in which metadata extracted from a file will be stored (may be {@code null})
+     * @param headerMetadataOnly
+     *     whether the metadata should be extracted from the header of an image file only. The complete metadata
+     *     extraction will only be triggered when the header doesn't contain all the information we need.
+     */
+    public DefaultImageFileParser(ImageMetadataCache metadataCache, boolean headerMetadataOnly) {
+        this.setMetadataCache(metadataCache);
+        this.setHeaderMetadataReader(headerMetadataOnly ? new ImageHeaderMetadataReader() : null);
+    }
+
     @Override
     public boolean isPotentialImageFile(File file) {
         String fileName = file.getName().toLowerCase();
@@ -56,15 +78,44 @@ public class DefaultImageFileParser implements ImageFileParser {
     }
 
     @Override
-    public ImageFile parseFile(File osFile) throws IOException {
-        DefaultImageFile imageFile = new DefaultImageFile(osFile);
-        this.appendMetadata(imageFile, osFile);
+    public ImageFile parseFile(File osFile, BasicFileAttributes osFileAttributes) throws IOException {
+        DefaultImageFile imageFile = new DefaultImageFile(osFile, osFileAttributes);
+        if (this.getMetadataCache() == null) {
+            this.appendMetadata(imageFile, osFile);
+        } else {
+            long osFileSize = osFileAttributes.size();
+            long osFileLastModified = osFileAttributes.lastModifiedTime().toMillis();
+            Map<ImageDataKey, String> cachedValues = this.getMetadataCache().lookup(osFile, osFileSize, osFileLastModified);
+            if (cachedValues != null) {
+                cachedValues.forEach(imageFile::resetPropertyValue);
+            } else if (this.appendMetadata(imageFile, osFile)) {
+
+                // Files that couldn't be read (e.g. because they're still being copied) are not stored in the cache,
+                // so that the extraction will be tried again the next time the file is parsed
+                Map<ImageDataKey, String> extractedValues = new EnumMap<>(ImageDataKey.class);
+                imageFile.getProperties().forEach((key, property) -> {
+                    if (StringUtils.isNotEmpty(property.getOriginalValue().getValue())) {
+                        extractedValues.put(key, property.getOriginalValue().getValue());
+                    }
+                });
+                this.getMetadataCache().store(osFile, osFileSize, osFileLastModified, extractedValues);
+            }
+        }
         return imageFile;
     }
 
-    private void appendMetadata(DefaultImageFile imageFile, File osFile) {
+    /**
+     * Extracts the metadata from the given file into the properties of the image file
+     *
+     * @return
+     *     {@code true} if the metadata has been extracted, {@code false} if the file couldn't be read
+     */
+    private boolean appendMetadata(DefaultImageFile imageFile, File osFile) {
         try {
-            Metadata metadata = ImageMetadataReader.readMetadata(osFile);
+            Metadata metadata = this.readHeaderMetadata(osFile);
+            if (metadata == null) {
+                metadata = ImageMetadataReader.readMetadata(osFile);
+            }
 //            for (Directory directory : metadata.getDirectories()) {
 //                System.err.println(directory.toString() + " == " + directory.getClass().getName());
 //                for (Tag tag : directory.getTags()) {
@@ -90,11 +141,47 @@ public class DefaultImageFileParser implements ImageFileParser {
                 extractor.extractString(ImageDataKey.RESOLUTION_X, JfifDirectory.TAG_RESX);
                 extractor.extractString(ImageDataKey.RESOLUTION_Y, JfifDirectory.TAG_RESY);
             }
+            return true;
         } catch (Exception e) {
             log.debug("Cannot read image metadata from file at: {}", osFile.getAbsolutePath(), e);
+            return false;
         }
     }
 
+    /**
+     * Reads the metadata from the header of the given file only
+     *
+     * @return
+     *     the metadata or {@code null} if the complete metadata extraction needs to be used, which is also the case if
+     *     the header cannot be read (e.g. because the file has an unexpected structure)
+     */
+    private Metadata readHeaderMetadata(File osFile) {
+        if (this.getHeaderMetadataReader() == null) {
+            return null;
+        } else {
+            try {
+                return this.getHeaderMetadataReader().readMetadata(osFile);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Cannot read image metadata from header of file at: {}", osFile.getAbsolutePath(), e);
+                return null;
+            }
+        }
+    }
+
+    private ImageMetadataCache getMetadataCache() {
+        return this.metadataCache;
+    }
+    private void setMetadataCache(ImageMetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    private ImageHeaderMetadataReader getHeaderMetadataReader() {
+        return this.headerMetadataReader;
+    }
+    private void setHeaderMetadataReader(ImageHeaderMetadataReader headerMetadataReader) {
+        this.headerMetadataReader = headerMetadataReader;
+    }
+
     private static class DirectoryToPropertyExtractor {
 
         private static final DateTimeFormatter EXIF_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.model.impl;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import com.drew.imaging.FileType;
+import com.drew.imaging.FileTypeDetector;
+import com.drew.imaging.jpeg.JpegSegmentType;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.exif.ExifReader;
+import com.drew.metadata.exif.ExifThumbnailDirectory;
+import com.drew.metadata.file.FileTypeDirectory;
+import com.drew.metadata.jfif.JfifReader;
+import com.drew.metadata.jpeg.JpegReader;
+
+/**
+ * Reads the metadata that we're interested in from the header of an image file by only loading the relevant bytes
+ * instead of handing over the complete file to the {@code ImageMetadataReader}. If the header doesn't contain everything
+ * we need (or has a structure we don't know about) the reader gives up and the caller should fall back to the full
+ * metadata extraction.
+ *
+ * @author Christian Seifert
+ */
+
+class ImageHeaderMetadataReader {
+
+    private static final int FILE_TYPE_PREFIX_LENGTH = 4096;
+    private static final int MAX_HEADER_BYTES = 512 * 1024;
+    private static final byte[] EXIF_PREAMBLE = ExifReader.JPEG_SEGMENT_PREAMBLE.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JFIF_PREAMBLE = JfifReader.PREAMBLE.getBytes(StandardCharsets.US_ASCII);
+    private static final Set<JpegSegmentType> START_OF_FRAME_SEGMENT_TYPES = StreamSupport.stream(new JpegReader().getSegmentTypes().spliterator(), false).collect(Collectors.toSet());
+
+    /**
+     * Reads the metadata from the header of the given file
+     *
+     * @return
+     *     the metadata or {@code null} if the header of the file cannot be used to extract all the metadata we need
+     */
+    Metadata readMetadata(File osFile) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(osFile.toPath(), StandardOpenOption.READ)) {
+
+            byte[] filePrefix = this.readBytes(fileChannel, 0, (int)Math.min(FILE_TYPE_PREFIX_LENGTH, fileChannel.size()));
+            FileType fileType = FileTypeDetector.detectFileType(new BufferedInputStream(new ByteArrayInputStream(filePrefix)));
+            Metadata metadata = new Metadata();
+            metadata.addDirectory(new FileTypeDirectory(fileType));
+
+            return switch (fileType) {
+                case Jpeg -> this.appendJpegMetadata(fileChannel, metadata) ? metadata : null;
+                case Png -> this.isPngWithoutExif(fileChannel) ? metadata : null;
+                case Gif -> metadata;
+                default -> null;
+            };
+
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the thumbnail image that has been embedded into the EXIF segment of a JPEG file
+     *
+     * @return
+     *     the bytes of the embedded thumbnail image (which itself is a JPEG image) or {@code null} if the file doesn't
+     *     contain an embedded thumbnail
+     */
+    byte[] readExifThumbnail(File osFile) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(osFile.toPath(), StandardOpenOption.READ)) {
+            byte[] startOfImage = this.readBytes(fileChannel, 0, 2);
+            if ((startOfImage[0] & 0xFF) != 0xFF || (startOfImage[1] & 0xFF) != 0xD8) {
+                return null;
+            } else {
+                AtomicReference<byte[]> thumbnailBytes = new AtomicReference<>();
+                this.walkJpegSegments(fileChannel, (segmentType, segmentBytes) -> {
+                    if (segmentType == JpegSegmentType.APP1) {
+                        Metadata exifMetadata = new Metadata();
+                        new ExifReader().readJpegSegments(List.of(segmentBytes), exifMetadata, segmentType);
+                        ExifThumbnailDirectory thumbnailDirectory = exifMetadata.getFirstDirectoryOfType(ExifThumbnailDirectory.class);
+                        Integer thumbnailOffset = thumbnailDirectory == null ? null : thumbnailDirectory.getInteger(ExifThumbnailDirectory.TAG_THUMBNAIL_OFFSET);
+                        Integer thumbnailLength = thumbnailDirectory == null ? null : thumbnailDirectory.getInteger(ExifThumbnailDirectory.TAG_THUMBNAIL_LENGTH);
+                        if (thumbnailOffset != null && thumbnailLength != null && thumbnailOffset > 0 && thumbnailLength > 0) {
+
+                            // The thumbnail offset is relative to the start of the TIFF header, which directly follows
+                            // the EXIF preamble at the beginning of the segment
+                            int thumbnailStart = EXIF_PREAMBLE.length + thumbnailOffset;
+                            if (thumbnailStart + thumbnailLength <= segmentBytes.length) {
+                                thumbnailBytes.set(Arrays.copyOfRange(segmentBytes, thumbnailStart, thumbnailStart + thumbnailLength));
+                                return false;
+                            }
+
+                        }
+                    }
+                    return true;
+                });
+                return thumbnailBytes.get();
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private boolean appendJpegMetadata(FileChannel fileChannel, Metadata metadata) throws IOException {
+        return this.walkJpegSegments(fileChannel, (segmentType, segmentBytes) -> {
+            if (segmentType == JpegSegmentType.APP0) {
+                new JfifReader().readJpegSegments(List.of(segmentBytes), metadata, segmentType);
+            } else if (segmentType == JpegSegmentType.APP1) {
+                new ExifReader().readJpegSegments(List.of(segmentBytes), metadata, segmentType);
+            } else {
+                new JpegReader().extract(segmentBytes, metadata, segmentType);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Walks through the segments of a JPEG file until the start of frame segment (which follows all the application
+     * segments in which the EXIF and JFIF data is stored) and only loads the content of the segments we actually need,
+     * which are the JFIF segment, the EXIF segment and the start of frame segment.
+     *
+     * @return
+     *     {@code true} if all relevant segments have been passed to the consumer, {@code false} if the header structure
+     *     could not be evaluated
+     */
+    private boolean walkJpegSegments(FileChannel fileChannel, JpegSegmentConsumer segmentConsumer) throws IOException {
+        long position = 2; // Skip the SOI marker
+        int headerBytes = 0;
+        while (headerBytes < MAX_HEADER_BYTES) {
+
+            byte[] segmentHeader = this.readBytes(fileChannel, position, 4);
+            if ((segmentHeader[0] & 0xFF) != 0xFF) {
+                return false; // Not a valid segment marker
+            }
+
+            int segmentMarker = segmentHeader[1] & 0xFF;
+            if (segmentMarker == 0xFF) {
+                position++; // Fill byte
+                continue;
+            } else if (segmentMarker == 0xDA || segmentMarker == 0xD9) {
+                return true; // Start of scan or end of image: there will not be any more metadata
+            }
+
+            int segmentLength = ((segmentHeader[2] & 0xFF) << 8 | (segmentHeader[3] & 0xFF)) - 2;
+            if (segmentLength < 0) {
+                return false;
+            }
+            long segmentPosition = position + 4;
+            JpegSegmentType segmentType = JpegSegmentType.fromByte((byte)segmentMarker);
+            if (segmentType == JpegSegmentType.APP0 || segmentType == JpegSegmentType.APP1) {
+                byte[] expectedPreamble = segmentType == JpegSegmentType.APP0 ? JFIF_PREAMBLE : EXIF_PREAMBLE;
+                byte[] segmentPreamble = this.readBytes(fileChannel, segmentPosition, Math.min(segmentLength, expectedPreamble.length));
+                headerBytes += segmentPreamble.length;
+                if (Arrays.equals(segmentPreamble, expectedPreamble)) {
+                    byte[] segmentBytes = this.readBytes(fileChannel, segmentPosition, segmentLength);
+                    headerBytes += segmentBytes.length;
+                    if (!segmentConsumer.consumeSegment(segmentType, segmentBytes)) {
+                        return true;
+                    }
+                }
+            } else if (START_OF_FRAME_SEGMENT_TYPES.contains(segmentType)) {
+                segmentConsumer.consumeSegment(segmentType, this.readBytes(fileChannel, segmentPosition, segmentLength));
+                return true; // All application segments are located before the frame header
+            }
+            position = segmentPosition + segmentLength;
+
+        }
+        return false;
+    }
+
+    @FunctionalInterface
+    private static interface JpegSegmentConsumer {
+
+        /**
+         * @return
+         *     {@code true} if the walk through the segments should continue, {@code false} if it should be stopped
+         */
+        boolean consumeSegment(JpegSegmentType segmentType, byte[] segmentBytes);
+
+    }
+
+    /**
+     * Walks through the chunk headers of a PNG file until the first image data chunk. The only metadata we extract
+     * from a PNG besides its file type would be stored within an EXIF chunk, so if we find one we let the complete
+     * metadata extraction handle the file.
+     */
+    private boolean isPngWithoutExif(FileChannel fileChannel) throws IOException {
+        long position = 8; // Skip the PNG signature
+        for (int headerBytes = 0; headerBytes < MAX_HEADER_BYTES; headerBytes += 8) {
+            byte[] chunkHeader = this.readBytes(fileChannel, position, 8);
+            long chunkLength = ByteBuffer.wrap(chunkHeader, 0, 4).getInt() & 0xFFFFFFFFL;
+            String chunkType = new String(chunkHeader, 4, 4, StandardCharsets.US_ASCII);
+            if ("eXIf".equals(chunkType)) {
+                return false;
+            } else if ("IDAT".equals(chunkType) || "IEND".equals(chunkType)) {
+                return true;
+            }
+            position += 8 + chunkLength + 4; // Header, data and CRC
+        }
+        return false;
+    }
+
+    private byte[] readBytes(FileChannel fileChannel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (fileChannel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of file at position " + (position + buffer.position()));
+            }
+        }
+        return buffer.array();
+    }
+
+}
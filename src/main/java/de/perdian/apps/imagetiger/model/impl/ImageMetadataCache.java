@@ -0,0 +1,277 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.model.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.perdian.apps.imagetiger.model.ImageDataKey;
+
+/**
+ * Persistent cache for the metadata extracted from image files. An entry is only valid as long as the size and the last
+ * modification time of the file are identical to the values at the time the metadata has been extracted.
+ *
+ * @author Christian Seifert
+ */
+
+public class ImageMetadataCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageMetadataCache.class);
+
+    private static final int FILE_FORMAT_MAGIC = 0x49544D43; // "ITMC"
+    private static final int FILE_FORMAT_VERSION = 1;
+    private static final int MAX_ENTRIES = 250_000;
+    private static final long MAX_ENTRY_IDLE_MILLIS = Duration.ofDays(90).toMillis();
+
+    private Path storageFile = null;
+    private Map<String, Entry> entries = null;
+    private volatile boolean modified = false;
+    private AtomicLong hits = new AtomicLong();
+    private AtomicLong misses = new AtomicLong();
+    private AtomicLong evictions = new AtomicLong();
+
+    public ImageMetadataCache(Path storageFile) {
+        this.setStorageFile(storageFile);
+        this.setEntries(this.loadEntries(storageFile));
+    }
+
+    @Override
+    public String toString() {
+        return "ImageMetadataCache[entries=" + this.getEntries().size() + ", hits=" + this.getHits() + ", misses=" + this.getMisses() + ", evictions=" + this.getEvictions() + "]";
+    }
+
+    /**
+     * Looks up the metadata previously extracted from the given file
+     *
+     * @return
+     *     the cached metadata or {@code null} if either no metadata has been stored for the file or the file has been
+     *     changed since the metadata was stored
+     */
+    Map<ImageDataKey, String> lookup(File osFile, long fileSize, long fileLastModified) {
+        String entryKey = osFile.getAbsolutePath();
+        Entry entry = this.getEntries().get(entryKey);
+        if (entry == null) {
+            this.misses.incrementAndGet();
+            return null;
+        } else if (entry.getFileSize() != fileSize || entry.getFileLastModified() != fileLastModified) {
+            if (this.getEntries().remove(entryKey, entry)) {
+                this.evictions.incrementAndGet();
+                this.setModified(true);
+            }
+            this.misses.incrementAndGet();
+            return null;
+        } else {
+            this.hits.incrementAndGet();
+            entry.setLastAccess(System.currentTimeMillis());
+            return entry.getValues();
+        }
+    }
+
+    void store(File osFile, long fileSize, long fileLastModified, Map<ImageDataKey, String> values) {
+        Map<ImageDataKey, String> entryValues = new EnumMap<>(ImageDataKey.class);
+        entryValues.putAll(values);
+        this.getEntries().put(osFile.getAbsolutePath(), new Entry(fileSize, fileLastModified, System.currentTimeMillis(), Collections.unmodifiableMap(entryValues)));
+        this.setModified(true);
+    }
+
+    /**
+     * Writes all changes since the last flush into the storage file
+     */
+    public synchronized void flush() {
+        this.evictIdleEntries();
+        if (this.isModified()) {
+            this.setModified(false);
+            Path storageFile = this.getStorageFile();
+            Path temporaryFile = storageFile.resolveSibling(storageFile.getFileName() + ".tmp");
+            log.debug("Writing metadata cache into file at: {} [{}]", storageFile, this);
+            try {
+                try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                    Map<String, Entry> entries = Map.copyOf(this.getEntries());
+                    outputStream.writeInt(FILE_FORMAT_MAGIC);
+                    outputStream.writeInt(FILE_FORMAT_VERSION);
+                    outputStream.writeInt(entries.size());
+                    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                        outputStream.writeUTF(entry.getKey());
+                        outputStream.writeLong(entry.getValue().getFileSize());
+                        outputStream.writeLong(entry.getValue().getFileLastModified());
+                        outputStream.writeLong(entry.getValue().getLastAccess());
+                        outputStream.writeByte(entry.getValue().getValues().size());
+                        for (Map.Entry<ImageDataKey, String> value : entry.getValue().getValues().entrySet()) {
+                            outputStream.writeUTF(value.getKey().name());
+                            outputStream.writeUTF(value.getValue());
+                        }
+                    }
+                    outputStream.flush();
+                }
+                Files.move(temporaryFile, storageFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.warn("Cannot write metadata cache into file at: {}", storageFile, e);
+            }
+        }
+    }
+
+    private void evictIdleEntries() {
+        long idleThreshold = System.currentTimeMillis() - MAX_ENTRY_IDLE_MILLIS;
+        int sizeBeforeEviction = this.getEntries().size();
+        if (this.getEntries().values().removeIf(entry -> entry.getLastAccess() < idleThreshold)) {
+            this.evictions.addAndGet(Math.max(0, sizeBeforeEviction - this.getEntries().size()));
+            this.setModified(true);
+        }
+        int overflowSize = this.getEntries().size() - MAX_ENTRIES;
+        if (overflowSize > 0) {
+            this.getEntries().entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().getLastAccess()))
+                .limit(overflowSize)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(this.getEntries()::remove);
+            this.evictions.addAndGet(overflowSize);
+            this.setModified(true);
+        }
+    }
+
+    private Map<String, Entry> loadEntries(Path storageFile) {
+        Map<String, Entry> entries = new ConcurrentHashMap<>();
+        if (Files.exists(storageFile)) {
+            log.debug("Loading metadata cache from file at: {}", storageFile);
+            try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(storageFile)))) {
+                if (inputStream.readInt() != FILE_FORMAT_MAGIC || inputStream.readInt() != FILE_FORMAT_VERSION) {
+                    log.info("Ignoring metadata cache with unsupported format at: {}", storageFile);
+                } else {
+                    int entryCount = inputStream.readInt();
+                    for (int i=0; i < entryCount; i++) {
+                        String entryKey = inputStream.readUTF();
+                        long fileSize = inputStream.readLong();
+                        long fileLastModified = inputStream.readLong();
+                        long lastAccess = inputStream.readLong();
+                        int valueCount = inputStream.readUnsignedByte();
+                        Map<ImageDataKey, String> values = new EnumMap<>(ImageDataKey.class);
+                        for (int j=0; j < valueCount; j++) {
+                            String valueKey = inputStream.readUTF();
+                            String value = inputStream.readUTF();
+                            try {
+                                values.put(ImageDataKey.valueOf(valueKey), value);
+                            } catch (IllegalArgumentException e) {
+                                log.trace("Ignoring unknown metadata key: {}", valueKey);
+                            }
+                        }
+                        entries.put(entryKey, new Entry(fileSize, fileLastModified, lastAccess, Collections.unmodifiableMap(values)));
+                    }
+                    log.debug("Loaded {} entries from metadata cache", entries.size());
+                }
+            } catch (Exception e) {
+                log.warn("Cannot read metadata cache from file at: {}", storageFile, e);
+                entries.clear();
+            }
+        }
+        return entries;
+    }
+
+    private static class Entry {
+
+        private long fileSize = 0;
+        private long fileLastModified = 0;
+        private volatile long lastAccess = 0;
+        private Map<ImageDataKey, String> values = null;
+
+        Entry(long fileSize, long fileLastModified, long lastAccess, Map<ImageDataKey, String> values) {
+            this.setFileSize(fileSize);
+            this.setFileLastModified(fileLastModified);
+            this.setLastAccess(lastAccess);
+            this.setValues(values);
+        }
+
+        long getFileSize() {
+            return this.fileSize;
+        }
+        private void setFileSize(long fileSize) {
+            this.fileSize = fileSize;
+        }
+
+        long getFileLastModified() {
+            return this.fileLastModified;
+        }
+        private void setFileLastModified(long fileLastModified) {
+            this.fileLastModified = fileLastModified;
+        }
+
+        long getLastAccess() {
+            return this.lastAccess;
+        }
+        void setLastAccess(long lastAccess) {
+            this.lastAccess = lastAccess;
+        }
+
+        Map<ImageDataKey, String> getValues() {
+            return this.values;
+        }
+        private void setValues(Map<ImageDataKey, String> values) {
+            this.values = values;
+        }
+
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    private Path getStorageFile() {
+        return this.storageFile;
+    }
+    private void setStorageFile(Path storageFile) {
+        this.storageFile = storageFile;
+    }
+
+    private Map<String, Entry> getEntries() {
+        return this.entries;
+    }
+    private void setEntries(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    private boolean isModified() {
+        return this.modified;
+    }
+    private void setModified(boolean modified) {
+        this.modified = modified;
+    }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.model.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes a {@link RenamePlan} and records it in a write-ahead journal before the first file is touched. If the
+ * application is terminated while the renames are running, the journal is picked up by {@link #recover()} upon the
+ * next start: every rename that can still be completed is rolled forward, every file that cannot reach its target is
+ * moved back to its original location.
+ *
+ * @author Christian Seifert
+ */
+
+public class RenameJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(RenameJournal.class);
+
+    private static final int FILE_FORMAT_MAGIC = 0x49545240; // "ITR@"
+    private static final int FILE_FORMAT_VERSION = 1;
+    private static final byte MARKER_TEMPORARY_MOVES_COMPLETED = 1;
+
+    private Path journalDirectory = null;
+    private AtomicLong journalCounter = new AtomicLong();
+
+    public RenameJournal(Path journalDirectory) {
+        this.setJournalDirectory(journalDirectory);
+    }
+
+    /**
+     * Executes all renames of the given plan. The renames are run in two phases: First every file is moved either
+     * into its target or, if the target is still occupied by another file of the plan, into its temporary location.
+     * After that all files from their temporary locations are moved into their targets. The renames within a phase
+     * don't depend upon each other and are executed in parallel.
+     *
+     * @return
+     *     the renames that could not be executed (including the renames that have already been rejected by the plan),
+     *     the key is the original path of the file
+     */
+    public Map<Path, IOException> execute(RenamePlan plan, Executor executor) {
+        Map<Path, IOException> failedRenames = new ConcurrentHashMap<>(plan.getRejectedRenames());
+        if (!plan.getEntries().isEmpty()) {
+            Path journalFile = null;
+            try {
+                journalFile = this.writeJournal(plan.getEntries());
+            } catch (IOException e) {
+                log.warn("Cannot write rename journal, no files will be renamed", e);
+                plan.getEntries().forEach(entry -> failedRenames.put(entry.getSourcePath(), e));
+                return failedRenames;
+            }
+            log.debug("Executing renames: {} [journal={}]", plan, journalFile);
+
+            this.executeInParallel(plan.getEntries(), executor, entry -> {
+                try {
+                    move(entry.getSourcePath(), entry.getTemporaryPath() == null ? entry.getTargetPath() : entry.getTemporaryPath());
+                } catch (IOException e) {
+                    failedRenames.put(entry.getSourcePath(), e);
+                }
+            });
+            this.writeJournalMarker(journalFile);
+
+            List<RenamePlan.Entry> temporaryEntries = plan.getEntries().stream().filter(entry -> entry.getTemporaryPath() != null && !failedRenames.containsKey(entry.getSourcePath())).toList();
+            this.executeInParallel(temporaryEntries, executor, entry -> {
+                try {
+                    move(entry.getTemporaryPath(), entry.getTargetPath());
+                } catch (IOException e) {
+                    failedRenames.put(entry.getSourcePath(), e);
+                    this.rollbackTemporary(entry);
+                }
+            });
+
+            this.closeJournal(journalFile, plan.getEntries());
+        }
+        return failedRenames;
+    }
+
+    /**
+     * Completes all renames of journals left behind by previous runs that have been terminated before the renames
+     * were completed
+     */
+    public synchronized void recover() {
+        if (Files.isDirectory(this.getJournalDirectory())) {
+            try (Stream<Path> journalFiles = Files.list(this.getJournalDirectory())) {
+                for (Path journalFile : journalFiles.sorted().toList()) {
+                    String journalFileName = journalFile.getFileName().toString();
+                    if (journalFileName.endsWith(".journal.tmp")) {
+                        Files.deleteIfExists(journalFile);
+                    } else if (journalFileName.endsWith(".journal")) {
+                        this.recoverJournal(journalFile);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Cannot recover rename journals from directory: {}", this.getJournalDirectory(), e);
+            }
+        }
+    }
+
+    private void recoverJournal(Path journalFile) throws IOException {
+        log.info("Recovering interrupted renames from journal: {}", journalFile);
+        List<RenamePlan.Entry> entries = new ArrayList<>();
+        boolean temporaryMovesCompleted = false;
+        try (DataInputStream inputStream = new DataInputStream(Files.newInputStream(journalFile))) {
+            if (inputStream.readInt() != FILE_FORMAT_MAGIC || inputStream.readInt() != FILE_FORMAT_VERSION) {
+                throw new IOException("Unsupported rename journal format");
+            }
+            int entryCount = inputStream.readInt();
+            for (int i=0; i < entryCount; i++) {
+                Path sourcePath = Path.of(inputStream.readUTF());
+                String temporaryPathValue = inputStream.readUTF();
+                Path targetPath = Path.of(inputStream.readUTF());
+                entries.add(new RenamePlan.Entry(sourcePath, temporaryPathValue.isEmpty() ? null : Path.of(temporaryPathValue), targetPath));
+            }
+            try {
+                temporaryMovesCompleted = inputStream.readByte() == MARKER_TEMPORARY_MOVES_COMPLETED;
+            } catch (EOFException e) {
+                temporaryMovesCompleted = false;
+            }
+        } catch (IOException e) {
+            log.warn("Cannot read rename journal: {}", journalFile, e);
+            Files.move(journalFile, journalFile.resolveSibling(journalFile.getFileName() + ".failed"), StandardCopyOption.REPLACE_EXISTING);
+            return;
+        }
+
+        // As long as the first phase hasn't been completed, a file still found at its source location has not been
+        // moved yet. After the first phase the source location may already be occupied by another file of the plan.
+        if (!temporaryMovesCompleted) {
+            for (RenamePlan.Entry entry : entries) {
+                Path firstPath = entry.getTemporaryPath() == null ? entry.getTargetPath() : entry.getTemporaryPath();
+                if (Files.exists(entry.getSourcePath()) && !Files.exists(firstPath)) {
+                    try {
+                        move(entry.getSourcePath(), firstPath);
+                    } catch (IOException e) {
+                        log.warn("Cannot roll forward rename: {}", entry, e);
+                    }
+                }
+            }
+        }
+        for (RenamePlan.Entry entry : entries) {
+            if (entry.getTemporaryPath() != null && Files.exists(entry.getTemporaryPath())) {
+                try {
+                    move(entry.getTemporaryPath(), entry.getTargetPath());
+                } catch (IOException e) {
+                    log.warn("Cannot roll forward rename: {}", entry, e);
+                    this.rollbackTemporary(entry);
+                }
+            }
+        }
+        this.closeJournal(journalFile, entries);
+
+    }
+
+    private void rollbackTemporary(RenamePlan.Entry entry) {
+        try {
+            move(entry.getTemporaryPath(), entry.getSourcePath());
+        } catch (IOException e) {
+            log.error("Cannot move file back into its original location, file remains at: {}", entry.getTemporaryPath(), e);
+        }
+    }
+
+    private static void move(Path sourcePath, Path targetPath) throws IOException {
+        if (Files.exists(targetPath)) {
+            throw new FileAlreadyExistsException(sourcePath.toString(), targetPath.toString(), "Target file already exists");
+        } else {
+            Files.move(sourcePath, targetPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private void executeInParallel(List<RenamePlan.Entry> entries, Executor executor, Consumer<RenamePlan.Entry> entryConsumer) {
+        CompletableFuture<?>[] entryFutures = entries.stream().map(entry -> CompletableFuture.runAsync(() -> entryConsumer.accept(entry), executor)).toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(entryFutures).join();
+    }
+
+    private Path writeJournal(List<RenamePlan.Entry> entries) throws IOException {
+        ByteArrayOutputStream journalBytes = new ByteArrayOutputStream();
+        try (DataOutputStream outputStream = new DataOutputStream(journalBytes)) {
+            outputStream.writeInt(FILE_FORMAT_MAGIC);
+            outputStream.writeInt(FILE_FORMAT_VERSION);
+            outputStream.writeInt(entries.size());
+            for (RenamePlan.Entry entry : entries) {
+                outputStream.writeUTF(entry.getSourcePath().toString());
+                outputStream.writeUTF(entry.getTemporaryPath() == null ? "" : entry.getTemporaryPath().toString());
+                outputStream.writeUTF(entry.getTargetPath().toString());
+            }
+        }
+        Files.createDirectories(this.getJournalDirectory());
+        String journalFileName = System.currentTimeMillis() + "-" + this.journalCounter.incrementAndGet() + ".journal";
+        Path journalFile = this.getJournalDirectory().resolve(journalFileName);
+        Path temporaryJournalFile = this.getJournalDirectory().resolve(journalFileName + ".tmp");
+        try (FileChannel journalChannel = FileChannel.open(temporaryJournalFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer journalBuffer = ByteBuffer.wrap(journalBytes.toByteArray());
+            while (journalBuffer.hasRemaining()) {
+                journalChannel.write(journalBuffer);
+            }
+            journalChannel.force(true);
+        }
+        Files.move(temporaryJournalFile, journalFile, StandardCopyOption.ATOMIC_MOVE);
+        return journalFile;
+    }
+
+    private void writeJournalMarker(Path journalFile) {
+        try (FileChannel journalChannel = FileChannel.open(journalFile, StandardOpenOption.APPEND)) {
+            journalChannel.write(ByteBuffer.wrap(new byte[] { MARKER_TEMPORARY_MOVES_COMPLETED }));
+            journalChannel.force(true);
+        } catch (IOException e) {
+            log.warn("Cannot update rename journal: {}", journalFile, e);
+        }
+    }
+
+    private void closeJournal(Path journalFile, List<RenamePlan.Entry> entries) {
+        try {
+            List<RenamePlan.Entry> strandedEntries = entries.stream().filter(entry -> entry.getTemporaryPath() != null && Files.exists(entry.getTemporaryPath())).toList();
+            if (strandedEntries.isEmpty()) {
+                Files.deleteIfExists(journalFile);
+            } else {
+                log.error("Renames could not be completed, keeping journal at: {} [{}]", journalFile, strandedEntries);
+                Files.move(journalFile, journalFile.resolveSibling(journalFile.getFileName() + ".failed"), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.warn("Cannot close rename journal: {}", journalFile, e);
+        }
+    }
+
+    private Path getJournalDirectory() {
+        return this.journalDirectory;
+    }
+    private void setJournalDirectory(Path journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+}
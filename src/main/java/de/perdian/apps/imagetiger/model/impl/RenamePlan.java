@@ -0,0 +1,179 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.model.impl;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * A set of file renames that can be executed together. All renames are validated up front: renames that would
+ * overwrite an existing file or that share the same target with another rename are rejected, renames whose target is
+ * currently occupied by another file of the same plan (like two files swapping their names) are routed through a
+ * temporary file name.
+ *
+ * @author Christian Seifert
+ */
+
+public class RenamePlan {
+
+    private List<Entry> entries = null;
+    private Map<Path, IOException> rejectedRenames = null;
+
+    RenamePlan(List<Entry> entries, Map<Path, IOException> rejectedRenames) {
+        this.setEntries(Collections.unmodifiableList(entries));
+        this.setRejectedRenames(Collections.unmodifiableMap(rejectedRenames));
+    }
+
+    /**
+     * Creates a new plan for the given renames
+     *
+     * @param renames
+     *     the renames to be executed, the key is the current path of a file, the value is the path the file should be
+     *     renamed to
+     */
+    public static RenamePlan create(Map<Path, Path> renames) {
+
+        Map<Path, Path> pendingRenames = new LinkedHashMap<>();
+        for (Map.Entry<Path, Path> rename : renames.entrySet()) {
+            Path sourcePath = rename.getKey().toAbsolutePath().normalize();
+            Path targetPath = rename.getValue().toAbsolutePath().normalize();
+            if (!sourcePath.equals(targetPath)) {
+                pendingRenames.put(sourcePath, targetPath);
+            }
+        }
+
+        Map<Path, IOException> rejectedRenames = new LinkedHashMap<>();
+        Map<Path, Long> targetPathCounts = pendingRenames.values().stream().collect(Collectors.groupingBy(path -> path, HashMap::new, Collectors.counting()));
+        for (Map.Entry<Path, Path> pendingRename : pendingRenames.entrySet()) {
+            if (targetPathCounts.get(pendingRename.getValue()) > 1) {
+                rejectedRenames.put(pendingRename.getKey(), new FileAlreadyExistsException(pendingRename.getKey().toString(), pendingRename.getValue().toString(), "Multiple files would be renamed to the same target"));
+            } else if (Files.exists(pendingRename.getValue()) && !pendingRenames.containsKey(pendingRename.getValue()) && !isSameFile(pendingRename.getKey(), pendingRename.getValue())) {
+                rejectedRenames.put(pendingRename.getKey(), new FileAlreadyExistsException(pendingRename.getKey().toString(), pendingRename.getValue().toString(), "Target file already exists"));
+            }
+        }
+
+        // A rejected rename keeps its file in place, so every rename that targets the path of a rejected file would
+        // overwrite it and needs to be rejected as well
+        boolean rejectionsChanged = !rejectedRenames.isEmpty();
+        while (rejectionsChanged) {
+            rejectionsChanged = false;
+            for (Map.Entry<Path, Path> pendingRename : pendingRenames.entrySet()) {
+                if (!rejectedRenames.containsKey(pendingRename.getKey()) && rejectedRenames.containsKey(pendingRename.getValue())) {
+                    rejectedRenames.put(pendingRename.getKey(), new FileAlreadyExistsException(pendingRename.getKey().toString(), pendingRename.getValue().toString(), "Target file cannot be renamed"));
+                    rejectionsChanged = true;
+                }
+            }
+        }
+        pendingRenames.keySet().removeAll(rejectedRenames.keySet());
+
+        String temporarySuffix = ".imagetiger-" + UUID.randomUUID().toString().substring(0, 8) + ".tmp";
+        List<Entry> entries = new ArrayList<>(pendingRenames.size());
+        for (Map.Entry<Path, Path> pendingRename : pendingRenames.entrySet()) {
+            Path sourcePath = pendingRename.getKey();
+            Path targetPath = pendingRename.getValue();
+            boolean temporaryRequired = pendingRenames.containsKey(targetPath) || Files.exists(targetPath);
+            Path temporaryPath = temporaryRequired ? sourcePath.resolveSibling("." + sourcePath.getFileName() + temporarySuffix) : null;
+            entries.add(new Entry(sourcePath, temporaryPath, targetPath));
+        }
+        return new RenamePlan(entries, rejectedRenames);
+
+    }
+
+    private static boolean isSameFile(Path sourcePath, Path targetPath) {
+        try {
+            return Files.isSameFile(sourcePath, targetPath);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RenamePlan[entries=" + this.getEntries().size() + ", rejected=" + this.getRejectedRenames().size() + "]";
+    }
+
+    List<Entry> getEntries() {
+        return this.entries;
+    }
+    private void setEntries(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Gets the renames that cannot be executed, together with the reason why they have been rejected
+     */
+    public Map<Path, IOException> getRejectedRenames() {
+        return this.rejectedRenames;
+    }
+    private void setRejectedRenames(Map<Path, IOException> rejectedRenames) {
+        this.rejectedRenames = rejectedRenames;
+    }
+
+    static class Entry {
+
+        private Path sourcePath = null;
+        private Path temporaryPath = null;
+        private Path targetPath = null;
+
+        Entry(Path sourcePath, Path temporaryPath, Path targetPath) {
+            this.setSourcePath(sourcePath);
+            this.setTemporaryPath(temporaryPath);
+            this.setTargetPath(targetPath);
+        }
+
+        @Override
+        public String toString() {
+            return this.getSourcePath() + " -> " + (this.getTemporaryPath() == null ? "" : this.getTemporaryPath() + " -> ") + this.getTargetPath();
+        }
+
+        Path getSourcePath() {
+            return this.sourcePath;
+        }
+        private void setSourcePath(Path sourcePath) {
+            this.sourcePath = sourcePath;
+        }
+
+        /**
+         * Gets the path into which the file is moved before being moved into its target, or {@code null} if the file
+         * can be moved into its target directly
+         */
+        Path getTemporaryPath() {
+            return this.temporaryPath;
+        }
+        private void setTemporaryPath(Path temporaryPath) {
+            this.temporaryPath = temporaryPath;
+        }
+
+        Path getTargetPath() {
+            return this.targetPath;
+        }
+        private void setTargetPath(Path targetPath) {
+            this.targetPath = targetPath;
+        }
+
+    }
+
+}
@@ -55,6 +55,18 @@ public class ChangeTrackingProperty<T> {
         this.getNewValueInternal().setValue(value);
     }
 
+    /**
+     * Updates the original value without discarding a change that has already been made: If the property is dirty
+     * the new value is kept, otherwise the new value follows the original value.
+     */
+    public void updateOriginalValue(T value) {
+        if (this.getDirty().get()) {
+            this.getOriginalValueInternal().setValue(value);
+        } else {
+            this.resetValue(value);
+        }
+    }
+
     public ReadOnlyObjectProperty<T> getOriginalValue() {
         return this.getOriginalValueInternal();
     }
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2022-2022 Christian Seifert
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.perdian.apps.imagetiger.fx.model.batchupdate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.perdian.apps.imagetiger.fx.support.jobs.JobContext;
+import de.perdian.apps.imagetiger.model.ImageFile;
+import de.perdian.apps.imagetiger.model.ImageFileParser;
+import de.perdian.apps.imagetiger.model.impl.DefaultImageFileParser;
+
+/**
+ * Makes sure that evaluating the items of a batch update in parallel leads to exactly the same values as evaluating
+ * them one after another.
+ *
+ * @author Christian Seifert
+ */
+
+public class BatchUpdateJobExecutionTest {
+
+    private static final int NUMBER_OF_FILES = 500;
+
+    private static ExecutorService executorService = null;
+    private static List<ImageFile> imageFiles = null;
+
+    @BeforeAll
+    static void setupImageFiles(@TempDir Path directory) throws IOException {
+        ImageFileParser imageFileParser = new DefaultImageFileParser();
+        List<ImageFile> imageFiles = new ArrayList<>(NUMBER_OF_FILES);
+        for (int i=0; i < NUMBER_OF_FILES; i++) {
+            File osFile = Files.createFile(directory.resolve(String.format("IMG_%04d.jpg", i))).toFile();
+            imageFiles.add(imageFileParser.parseFile(osFile));
+        }
+        BatchUpdateJobExecutionTest.imageFiles = imageFiles;
+        BatchUpdateJobExecutionTest.executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void shutdownExecutor() {
+        BatchUpdateJobExecutionTest.executorService.shutdownNow();
+    }
+
+    @Test
+    public void multipleTemplatesWithCounters() {
+        List<String> sequentialValues = this.assertSequentialAndParallelEqual(settings -> {
+            settings.getNewFileName().setValue("#{file.name}-#{counter()}-#{counter('second', 10, 5)}-#{counter()}");
+            settings.getNewFileExtension().setValue("#{counter('extension', 1, 1, 4)}");
+            settings.getNewFileDateLocalString().setValue("2022-01-01 00:00:#{counter('second', 10, 5)}");
+        });
+        assertTrue(sequentialValues.get(NUMBER_OF_FILES - 1).startsWith("IMG_0499-999-5000-1000|0500|2022-01-01 00:00:5005|"));
+    }
+
+    @Test
+    public void countersCalledDifferentlyPerItem() {
+        this.assertSequentialAndParallelEqual(settings -> {
+            settings.getNewFileName().setValue("#{file.name.endsWith('3') ? counter() : 'x'}-#{counter('other')}");
+        });
+    }
+
+    @Test
+    public void nullResultsReplacePreviousValues() {
+        List<String> sequentialValues = this.assertSequentialAndParallelEqual(settings -> {
+            settings.getNewFileName().setValue("#{file.name.endsWith('7') ? null : file.name}");
+            settings.getNewFileExtension().setValue("#{file.name.endsWith('5') ? null : 'png'}");
+        });
+        assertTrue(sequentialValues.get(7).startsWith("null|png|"));
+        assertTrue(sequentialValues.get(5).startsWith("IMG_0005|null|"));
+    }
+
+    @Test
+    public void cancelledEvaluationAppliesLeadingItemsOnly() {
+        BatchUpdateSettings settings = new BatchUpdateSettings();
+        settings.getNewFileName().setValue("#{file.name}-#{counter()}");
+        List<BatchUpdateItem> sequentialItems = this.createItems();
+        new BatchUpdateJob(sequentialItems, settings).execute(new CancellingJobContext(100));
+        this.assertLeadingItemsUpdatedOnly(sequentialItems);
+        List<BatchUpdateItem> parallelItems = this.createItems();
+        new BatchUpdateJob(parallelItems, settings, BatchUpdateJobExecutionTest.executorService).execute(new CancellingJobContext(100));
+        this.assertLeadingItemsUpdatedOnly(parallelItems);
+    }
+
+    private void assertLeadingItemsUpdatedOnly(List<BatchUpdateItem> items) {
+        int updatedItems = 0;
+        while (updatedItems < items.size() && !"previous".equals(items.get(updatedItems).getFileNameWithoutExtension().getNewValue().getValue())) {
+            updatedItems++;
+        }
+        assertTrue(updatedItems < items.size());
+        for (int i=updatedItems; i < items.size(); i++) {
+            assertEquals("previous", items.get(i).getFileNameWithoutExtension().getNewValue().getValue());
+        }
+    }
+
+    private List<String> assertSequentialAndParallelEqual(Consumer<BatchUpdateSettings> settingsConsumer) {
+        BatchUpdateSettings settings = new BatchUpdateSettings();
+        settings.getOriginalFileNamePattern().setValue("IMG_(\\d+)");
+        settingsConsumer.accept(settings);
+
+        List<BatchUpdateItem> sequentialItems = this.createItems();
+        new BatchUpdateJob(sequentialItems, settings).execute(JobContext.NULL_CONTEXT);
+        List<BatchUpdateItem> parallelItems = this.createItems();
+        new BatchUpdateJob(parallelItems, settings, BatchUpdateJobExecutionTest.executorService).execute(JobContext.NULL_CONTEXT);
+
+        List<String> sequentialValues = sequentialItems.stream().map(this::describeNewValues).toList();
+        List<String> parallelValues = parallelItems.stream().map(this::describeNewValues).toList();
+        assertEquals(sequentialValues, parallelValues);
+        return sequentialValues;
+    }
+
+    private List<BatchUpdateItem> createItems() {
+        List<BatchUpdateItem> items = new ArrayList<>(BatchUpdateJobExecutionTest.imageFiles.size());
+        for (ImageFile imageFile : BatchUpdateJobExecutionTest.imageFiles) {
+            BatchUpdateItem item = new BatchUpdateItem(imageFile);
+            item.getFileNameWithoutExtension().getNewValue().setValue("previous");
+            item.getFileExtension().getNewValue().setValue("previous");
+            items.add(item);
+        }
+        return items;
+    }
+
+    private String describeNewValues(BatchUpdateItem item) {
+        return item.getFileNameWithoutExtension().getNewValue().getValue()
+            + "|" + item.getFileExtension().getNewValue().getValue()
+            + "|" + item.getFileDateLocalString().getNewValue().getValue()
+            + "|" + item.getFileDateLocalZone().getNewValue().getValue();
+    }
+
+    /**
+     * Cancels the job once the given number of progress updates have been received
+     */
+    private static class CancellingJobContext implements JobContext {
+
+        private AtomicInteger progressUpdates = new AtomicInteger();
+        private int maxProgressUpdates = 0;
+
+        CancellingJobContext(int maxProgressUpdates) {
+            this.maxProgressUpdates = maxProgressUpdates;
+        }
+
+        @Override
+        public void updateProgress(String message) {
+            this.progressUpdates.incrementAndGet();
+        }
+
+        @Override
+        public void updateProgress(String message, Integer step, Integer totalSteps) {
+            this.progressUpdates.incrementAndGet();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return this.progressUpdates.get() >= this.maxProgressUpdates;
+        }
+
+        @Override
+        public boolean isActive() {
+            return !this.isCancelled();
+        }
+
+        @Override
+        public Throwable getError() {
+            return null;
+        }
+
+    }
+
+}